@@ -0,0 +1,307 @@
+package org.us._42.laphicet.gomoku;
+
+import org.us._42.laphicet.gomoku.Gomoku.Alignment;
+
+/**
+ * Packed storage for the tokens on a Gomoku board.
+ * 
+ * Every player owns a dense bitboard of all cells, indexed by (y * BOARD_LENGTH) + x.
+ * In addition, every line of the board in each {@link Alignment} is kept as its own 32 bit lane,
+ * so the tokens along a line can be read as a single int and queried with shifts and masks.
+ * A cell's position within its line is its x coordinate, or its y coordinate for vertical lines.
+ * 
+ * The board also tracks its frontier, the empty cells within NEARBY cells of any token,
+ * as these are the only moves worth considering in a search.
+ */
+public class Bitboard {
+	public static final int CELL_COUNT = Gomoku.BOARD_LENGTH * Gomoku.BOARD_LENGTH;
+	public static final int LINE_COUNT = (Gomoku.BOARD_LENGTH * 2) + (((Gomoku.BOARD_LENGTH * 2) - 1) * 2);
+	public static final int NEARBY = 2;
+	
+	private static final int WORDS = (CELL_COUNT + 63) / 64;
+	private static final int LANE_BITS = 32;
+	private static final int LANE_MASK = (1 << Gomoku.BOARD_LENGTH) - 1;
+	
+	private static final int[] LINE_OFFSET = {
+		0,
+		Gomoku.BOARD_LENGTH,
+		Gomoku.BOARD_LENGTH * 2,
+		(Gomoku.BOARD_LENGTH * 2) + ((Gomoku.BOARD_LENGTH * 2) - 1)
+	};
+	
+	private static final int[] VALID = new int[LINE_COUNT];
+	
+	static {
+		for (int y = 0; y < Gomoku.BOARD_LENGTH; y++) {
+			for (int x = 0; x < Gomoku.BOARD_LENGTH; x++) {
+				for (Alignment alignment : Alignment.values()) {
+					VALID[line(alignment, x, y)] |= 1 << position(alignment, x, y);
+				}
+			}
+		}
+	}
+	
+	private long[][] cells = new long[Gomoku.PLAYER_COUNT][WORDS];
+	private long[][] lanes = new long[Gomoku.PLAYER_COUNT][(LINE_COUNT + 1) / 2];
+	
+	private int[] nearby = new int[CELL_COUNT];
+	private long[] frontier = new long[WORDS];
+	
+	/**
+	 * Gets the index of the line running through a cell in a certain alignment.
+	 * 
+	 * @param alignment The alignment of the line.
+	 * @param x The x coordinate of the cell.
+	 * @param y The y coordinate of the cell.
+	 * @return The index of the line, from 0 to LINE_COUNT - 1.
+	 */
+	public static int line(Alignment alignment, int x, int y) {
+		switch (alignment) {
+			case HORIZONTAL:
+				return (LINE_OFFSET[0] + y);
+			case VERTICAL:
+				return (LINE_OFFSET[1] + x);
+			case ASCENDING:
+				return (LINE_OFFSET[2] + (x - y) + (Gomoku.BOARD_LENGTH - 1));
+			default:
+				return (LINE_OFFSET[3] + (x + y));
+		}
+	}
+	
+	/**
+	 * Gets the bit position of a cell within its line in a certain alignment.
+	 * Moving one step along the alignment (dx, dy) always moves one bit up.
+	 * 
+	 * @param alignment The alignment of the line.
+	 * @param x The x coordinate of the cell.
+	 * @param y The y coordinate of the cell.
+	 * @return The bit position of the cell within its line.
+	 */
+	public static int position(Alignment alignment, int x, int y) {
+		return ((alignment == Alignment.VERTICAL) ? y : x);
+	}
+	
+	/**
+	 * Gets the positions of a line which lie on the board.
+	 * 
+	 * @param line The index of the line.
+	 * @return A mask of the positions within the line that lie on the board.
+	 */
+	public static int getValidMask(int line) {
+		return (VALID[line]);
+	}
+	
+	/**
+	 * Gets the tokens of a player along a line.
+	 * 
+	 * @param value The player's token value.
+	 * @param line The index of the line.
+	 * @return A mask of the positions within the line that hold the player's tokens.
+	 */
+	public int getLine(int value, int line) {
+		return ((int)(this.lanes[value - 1][line >> 1] >>> ((line & 1) * LANE_BITS)) & LANE_MASK);
+	}
+	
+	/**
+	 * Gets all tokens along a line.
+	 * 
+	 * @param line The index of the line.
+	 * @return A mask of the positions within the line that hold any token.
+	 */
+	public int getOccupied(int line) {
+		int occupied = 0;
+		for (int i = 0; i < Gomoku.PLAYER_COUNT; i++) {
+			occupied |= this.getLine(i + 1, line);
+		}
+		return (occupied);
+	}
+	
+	/**
+	 * Gets the value of the token on a cell.
+	 * The coordinates must be on the board.
+	 * 
+	 * @param x The x coordinate of the cell.
+	 * @param y The y coordinate of the cell.
+	 * @return The value of the token, or 0 if the cell is empty.
+	 */
+	public int get(int x, int y) {
+		int cell = (y * Gomoku.BOARD_LENGTH) + x;
+		for (int i = 0; i < Gomoku.PLAYER_COUNT; i++) {
+			if ((this.cells[i][cell >> 6] & (1L << cell)) != 0) {
+				return (i + 1);
+			}
+		}
+		return (0);
+	}
+	
+	/**
+	 * Gets the number of tokens a player has on the board.
+	 * 
+	 * @param value The player's token value.
+	 * @return The number of tokens.
+	 */
+	public int count(int value) {
+		int count = 0;
+		for (long word : this.cells[value - 1]) {
+			count += Long.bitCount(word);
+		}
+		return (count);
+	}
+	
+	/**
+	 * Finds the next cell holding a token of a player, starting from a given cell.
+	 * This allows iterating over a player's tokens without allocating.
+	 * 
+	 * @param value The player's token value.
+	 * @param cell The cell index to start searching from (inclusive).
+	 * @return The index of the next cell holding the player's token, or -1 if there is none.
+	 */
+	public int next(int value, int cell) {
+		long[] cells = this.cells[value - 1];
+		if ((cell < 0) || (cell >= CELL_COUNT)) {
+			return (-1);
+		}
+		
+		int word = cell >> 6;
+		long bits = cells[word] & (-1L << cell);
+		while (bits == 0) {
+			if (++word >= WORDS) {
+				return (-1);
+			}
+			bits = cells[word];
+		}
+		return ((word << 6) + Long.numberOfTrailingZeros(bits));
+	}
+	
+	/**
+	 * Checks if a cell is on the frontier, meaning it is empty and within NEARBY cells of a token.
+	 * 
+	 * @param cell The cell index.
+	 * @return Whether or not the cell is on the frontier.
+	 */
+	public boolean isFrontier(int cell) {
+		return ((this.frontier[cell >> 6] & (1L << cell)) != 0);
+	}
+	
+	/**
+	 * Finds the next cell on the frontier, starting from a given cell.
+	 * See {@link Bitboard#isFrontier(int)}.
+	 * 
+	 * @param cell The cell index to start searching from (inclusive).
+	 * @return The index of the next frontier cell, or -1 if there is none.
+	 */
+	public int nextFrontier(int cell) {
+		if ((cell < 0) || (cell >= CELL_COUNT)) {
+			return (-1);
+		}
+		
+		int word = cell >> 6;
+		long bits = this.frontier[word] & (-1L << cell);
+		while (bits == 0) {
+			if (++word >= WORDS) {
+				return (-1);
+			}
+			bits = this.frontier[word];
+		}
+		return ((word << 6) + Long.numberOfTrailingZeros(bits));
+	}
+	
+	/**
+	 * Places a token, the cell must be empty.
+	 * 
+	 * @param x The x coordinate of the cell.
+	 * @param y The y coordinate of the cell.
+	 * @param value The value of the token.
+	 */
+	void set(int x, int y, int value) {
+		this.flip(x, y, value);
+		this.touch(x, y, 1);
+	}
+	
+	/**
+	 * Removes the token of a certain value from a cell.
+	 * 
+	 * @param x The x coordinate of the cell.
+	 * @param y The y coordinate of the cell.
+	 * @param value The value of the token being removed.
+	 */
+	void clear(int x, int y, int value) {
+		this.flip(x, y, value);
+		this.touch(x, y, -1);
+	}
+	
+	/**
+	 * Toggles a player's token on a cell, in the dense board and every line through it.
+	 * 
+	 * @param x The x coordinate of the cell.
+	 * @param y The y coordinate of the cell.
+	 * @param value The value of the token.
+	 */
+	private void flip(int x, int y, int value) {
+		int cell = (y * Gomoku.BOARD_LENGTH) + x;
+		this.cells[value - 1][cell >> 6] ^= (1L << cell);
+		
+		long[] lanes = this.lanes[value - 1];
+		for (Alignment alignment : Alignment.values()) {
+			int line = line(alignment, x, y);
+			lanes[line >> 1] ^= (1L << (((line & 1) * LANE_BITS) + position(alignment, x, y)));
+		}
+	}
+	
+	/**
+	 * Updates the number of tokens near the cells around a changed cell, and their place on the frontier.
+	 * 
+	 * @param x The x coordinate of the changed cell.
+	 * @param y The y coordinate of the changed cell.
+	 * @param amount 1 if a token was placed, -1 if it was removed.
+	 */
+	private void touch(int x, int y, int amount) {
+		for (int ty = Math.max(0, y - NEARBY); ty <= Math.min(Gomoku.BOARD_LENGTH - 1, y + NEARBY); ty++) {
+			for (int tx = Math.max(0, x - NEARBY); tx <= Math.min(Gomoku.BOARD_LENGTH - 1, x + NEARBY); tx++) {
+				int cell = (ty * Gomoku.BOARD_LENGTH) + tx;
+				this.nearby[cell] += amount;
+				
+				if ((this.nearby[cell] > 0) && (this.get(tx, ty) == 0)) {
+					this.frontier[cell >> 6] |= (1L << cell);
+				}
+				else {
+					this.frontier[cell >> 6] &= ~(1L << cell);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Removes every token from the board.
+	 */
+	void clear() {
+		for (int i = 0; i < Gomoku.PLAYER_COUNT; i++) {
+			for (int j = 0; j < this.cells[i].length; j++) {
+				this.cells[i][j] = 0;
+			}
+			for (int j = 0; j < this.lanes[i].length; j++) {
+				this.lanes[i][j] = 0;
+			}
+		}
+		for (int i = 0; i < CELL_COUNT; i++) {
+			this.nearby[i] = 0;
+		}
+		for (int i = 0; i < WORDS; i++) {
+			this.frontier[i] = 0;
+		}
+	}
+	
+	/**
+	 * Overwrites this board with the contents of another.
+	 * 
+	 * @param board The board to copy.
+	 */
+	void copy(Bitboard board) {
+		for (int i = 0; i < Gomoku.PLAYER_COUNT; i++) {
+			System.arraycopy(board.cells[i], 0, this.cells[i], 0, this.cells[i].length);
+			System.arraycopy(board.lanes[i], 0, this.lanes[i], 0, this.lanes[i].length);
+		}
+		System.arraycopy(board.nearby, 0, this.nearby, 0, CELL_COUNT);
+		System.arraycopy(board.frontier, 0, this.frontier, 0, WORDS);
+	}
+}
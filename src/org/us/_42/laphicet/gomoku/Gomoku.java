@@ -2,6 +2,7 @@ package org.us._42.laphicet.gomoku;
 
 import java.security.SecureRandom;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
@@ -28,25 +29,31 @@ public class Gomoku implements Cloneable {
 		}
 	}
 	
-	private static class Token implements Cloneable {
-		private int[] adjacent = new int[Alignment.values().length];
-		private final int value;
-		
-		private Token(int value) {
-			this.value = value;
-		}
-		
-		@Override
-		public Token clone() {
-			Token token = new Token(this.value);
-			for (Alignment alignment : Alignment.values()) {
-				token.adjacent[alignment.ordinal()] = this.adjacent[alignment.ordinal()];
+	private static final long[][] TOKEN_KEYS = new long[PLAYER_COUNT][Bitboard.CELL_COUNT];
+	private static final long[][] CAPTURE_KEYS = new long[PLAYER_COUNT][CAPTURES_TO_WIN + (Alignment.values().length * 2)];
+	private static final long[] TURN_KEYS = new long[PLAYER_COUNT];
+	
+	static {
+		// Fixed seed, hashes must stay the same between runs to be stored
+		Random rng = new Random(0x42L);
+		for (int i = 0; i < PLAYER_COUNT; i++) {
+			for (int j = 0; j < TOKEN_KEYS[i].length; j++) {
+				TOKEN_KEYS[i][j] = rng.nextLong();
+			}
+			// No captures is the starting state, so it has no key
+			for (int j = 1; j < CAPTURE_KEYS[i].length; j++) {
+				CAPTURE_KEYS[i][j] = rng.nextLong();
 			}
-			return (token);
+			TURN_KEYS[i] = rng.nextLong();
 		}
 	}
 	
-	private Token[][] board = new Token[BOARD_LENGTH][BOARD_LENGTH];
+	private Bitboard board = new Bitboard();
+	private PatternCounts patterns = new PatternCounts();
+	private long hash = 0;
+	
+	// The tokens of the hash as seen from every symmetry of the board, see Symmetry
+	private long[] symmetries = new long[Symmetry.COUNT];
 	
 	private GameStateReporter reporter;
 	private List<String> logs = new ArrayList<String>();
@@ -66,9 +73,12 @@ public class Gomoku implements Cloneable {
 	
 	private int turn = 0;
 	
-	private Token check5 = null;
+	private int check5 = -1;
 	private int winner = 0;
 	
+	private int[] history = new int[64];
+	private int historyLength = 0;
+	
 	private boolean started = false;
 	private boolean abort = false;
 	private boolean running = false;
@@ -110,17 +120,11 @@ public class Gomoku implements Cloneable {
 	 * @param gomoku The instance to duplicate.
 	 */
 	public void cloneOf(Gomoku gomoku) {
-		for (int y = 0; y < BOARD_LENGTH; y++) {
-			for (int x = 0; x < BOARD_LENGTH; x++) {
-				this.board[y][x] = null;
-				if (gomoku.board[y][x] != null) {
-					this.board[y][x] = gomoku.board[y][x].clone();
-					if ((gomoku.check5 != null) && (gomoku.check5 == gomoku.board[y][x])) {
-						this.check5 = this.board[y][x];
-					}
-				}
-			}
-		}
+		this.board.copy(gomoku.board);
+		this.patterns.copy(gomoku.patterns);
+		this.hash = gomoku.hash;
+		System.arraycopy(gomoku.symmetries, 0, this.symmetries, 0, Symmetry.COUNT);
+		this.check5 = gomoku.check5;
 		
 		for (int i = 0; i < PLAYER_COUNT; i++) {
 			this.captures[i] = gomoku.captures[i];
@@ -131,6 +135,12 @@ public class Gomoku implements Cloneable {
 		this.y = gomoku.y;
 		this.submitted = gomoku.submitted;
 		
+		if (this.history.length < gomoku.historyLength) {
+			this.history = new int[gomoku.history.length];
+		}
+		System.arraycopy(gomoku.history, 0, this.history, 0, gomoku.historyLength);
+		this.historyLength = gomoku.historyLength;
+		
 		this.logs.addAll(gomoku.logs);
 		this.turn = gomoku.turn;
 		this.winner = gomoku.winner;
@@ -179,6 +189,19 @@ public class Gomoku implements Cloneable {
 		return (this.winner);
 	}
 	
+	/**
+	 * Gets the player whose row of ADJACENT_TO_WIN still has to be countered.
+	 * The row wins once the next move is made, unless that move breaks it with a capture.
+	 * 
+	 * @return The token value of the player, or 0 if no row is waiting.
+	 */
+	public int getPendingRow() {
+		if (this.check5 < 0) {
+			return (0);
+		}
+		return (this.board.get(this.check5 % BOARD_LENGTH, this.check5 / BOARD_LENGTH));
+	}
+	
 	/**
 	 * Gets the current turn.
 	 * 
@@ -214,6 +237,83 @@ public class Gomoku implements Cloneable {
 		return (-1);
 	}
 	
+	/**
+	 * Gets the number of runs of ADJACENT_TO_WIN cells that hold a number of a player's tokens
+	 * and none of the opponent's, see {@link PatternCounts}. The counts are kept up to date
+	 * incrementally, so this does not look at the board.
+	 * 
+	 * @param value The player's token value.
+	 * @param tokens The number of tokens, from 1 to ADJACENT_TO_WIN.
+	 * @return The number of open runs.
+	 */
+	public int getOpenWindows(int value, int tokens) {
+		return (this.patterns.getOpenWindows(value, tokens));
+	}
+	
+	/**
+	 * Gets the number of captures a player could make with a single move, legal or not.
+	 * The count is kept up to date incrementally, so this does not look at the board.
+	 * 
+	 * @param value The player's token value.
+	 * @return The number of capture threats.
+	 */
+	public int getCaptureThreats(int value) {
+		return (this.patterns.getCaptureThreats(value));
+	}
+	
+	/**
+	 * Gets a 64 bit Zobrist hash identifying the current position.
+	 * It covers the tokens on the board, the capture counts, and which player is to move.
+	 * The hash is kept up to date incrementally and is the same across runs.
+	 * 
+	 * @return The hash of the current position.
+	 */
+	public long getPositionHash() {
+		return (this.hash ^ TURN_KEYS[this.turn % PLAYER_COUNT]);
+	}
+	
+	/**
+	 * Gets the hash the current position would have in one of the symmetries of the board.
+	 * Captures and the player to move look the same in every symmetry, only the tokens move.
+	 * 
+	 * @param transform The index of the symmetry, see {@link Symmetry}.
+	 * @return The hash of the position in the symmetry, the position hash for {@link Symmetry#IDENTITY}.
+	 */
+	public long getSymmetricHash(int transform) {
+		return (this.symmetries[transform] ^ this.symmetries[Symmetry.IDENTITY] ^ this.getPositionHash());
+	}
+	
+	/**
+	 * Gets a hash that is the same for the current position in all of its symmetries,
+	 * the smallest of its hashes in every symmetry.
+	 * 
+	 * @return The canonical hash of the current position.
+	 */
+	public long getCanonicalHash() {
+		return (this.getSymmetricHash(this.getCanonicalTransform()));
+	}
+	
+	/**
+	 * Gets the symmetry the canonical hash was taken from.
+	 * A cell of the board maps onto that symmetry with {@link Symmetry#transform(int, int)},
+	 * and back with {@link Symmetry#inverse(int, int)}.
+	 * 
+	 * @return The index of the symmetry, see {@link Symmetry}.
+	 */
+	public int getCanonicalTransform() {
+		long common = this.symmetries[Symmetry.IDENTITY] ^ this.getPositionHash();
+		int transform = Symmetry.IDENTITY;
+		long best = this.symmetries[Symmetry.IDENTITY] ^ common;
+		for (int t = 1; t < Symmetry.COUNT; t++) {
+			long hash = this.symmetries[t] ^ common;
+			if (hash < best) {
+				transform = t;
+				best = hash;
+			}
+		}
+		return (transform);
+	}
+	
 	/**
 	 * Get the number of tokens adjacent of a certain token (including itself) in a specific alignment.
 	 * 
@@ -226,10 +326,18 @@ public class Gomoku implements Cloneable {
 		if ((x < 0) || (x >= BOARD_LENGTH) || (y < 0) || (y >= BOARD_LENGTH)) {
 			return (-1);
 		}
-		if (this.board[y][x] == null) {
+		int value = this.board.get(x, y);
+		if (value == 0) {
 			return (0);
 		}
-		return (this.board[y][x].adjacent[alignment.ordinal()]);
+		
+		int line = this.board.getLine(value, Bitboard.line(alignment, x, y));
+		int position = Bitboard.position(alignment, x, y);
+		
+		// Runs of tokens from the position upwards and downwards, both including the token itself
+		int next = Integer.numberOfTrailingZeros(~(line >>> position));
+		int prev = Integer.numberOfLeadingZeros(~(line << (31 - position)));
+		return (prev + next - 1);
 	}
 	
 	/**
@@ -258,42 +366,7 @@ public class Gomoku implements Cloneable {
 		if ((x < 0) || (x >= BOARD_LENGTH) || (y < 0) || (y >= BOARD_LENGTH)) {
 			return (-1);
 		}
-		if (this.board[y][x] != null) {
-			return (this.board[y][x].value);
-		}
-		return (0);
-	}
-	
-	/**
-	 * Updates all adjacent tokens in a certain direction.
-	 * 
-	 * @param x The added token's x coordinate.
-	 * @param y The added token's y coordinate.
-	 * @param token The token being placed.
-	 * @param alignment The alignment on the adjacent tokens.
-	 */
-	private void updateAdjacents(int x, int y, Token token, Alignment alignment) {
-		int dx = alignment.dx;
-		int dy = alignment.dy;
-		int index = alignment.ordinal();
-		
-		int prev = 0;
-		int next = 0;
-		
-		if (this.getToken(x - dx, y - dy) == token.value) {
-			prev = this.board[y - dy][x - dx].adjacent[index];
-		}
-		if (this.getToken(x + dx, y + dy) == token.value) {
-			next = this.board[y + dy][x + dx].adjacent[index];
-		}
-		
-		token.adjacent[index] = prev + 1 + next;
-		for (int i = 1; i <= prev; i++) {
-			this.board[y - (dy * i)][x - (dx * i)].adjacent[index] = token.adjacent[index];
-		}
-		for (int i = 1; i <= next; i++) {
-			this.board[y + (dy * i)][x + (dx * i)].adjacent[index] = token.adjacent[index];
-		}
+		return (this.board.get(x, y));
 	}
 	
 	/**
@@ -305,48 +378,16 @@ public class Gomoku implements Cloneable {
 	 * @return Whether the piece was place or not.
 	 */
 	private boolean setToken(int x, int y, int value) {
-		if (this.board[y][x] != null) {
+		if (this.board.get(x, y) != 0) {
 			return (false);
 		}
 		
-		this.board[y][x] = new Token(value);
-		for (Alignment alignment : Alignment.values()) {
-			this.updateAdjacents(x, y, this.board[y][x], alignment);
-		}
+		this.board.set(x, y, value);
+		this.patterns.set((y * BOARD_LENGTH) + x, value);
+		this.hashToken((y * BOARD_LENGTH) + x, value);
 		return (true);
 	}
 	
-	/**
-	 * Re-calculates the number of adjacent tokens in a direction.
-	 * It then updates them all accordingly.
-	 * 
-	 * @param x The added token's x coordinate.
-	 * @param y The added token's y coordinate.
-	 * @param token The token being removed.
-	 * @param alignment The alignment on the adjacent tokens.
-	 */
-	private void resetAdjacents(int x, int y, Token token, Alignment alignment) {
-		int dx = alignment.dx;
-		int dy = alignment.dy;
-		int index = alignment.ordinal();
-		
-		int prev = 0;
-		for (int i = 1; this.getToken(x - (dx * i), y - (dy * i)) == token.value; i++) {
-			prev++;
-		}
-		for (int i = 1; i <= prev; i++) {
-			this.board[y - (dy * i)][x - (dx * i)].adjacent[index] = prev;
-		}
-		
-		int next = 0;
-		for (int i = 1; this.getToken(x + (dx * i), y + (dy * i)) == token.value; i++) {
-			next++;
-		}
-		for (int i = 1; i <= next; i++) {
-			this.board[y + (dy * i)][x + (dx * i)].adjacent[index] = next;
-		}
-	}
-	
 	/**
 	 * Removes a token on the game board.
 	 * 
@@ -354,20 +395,44 @@ public class Gomoku implements Cloneable {
 	 * @param y The y coordinate of the token.
 	 */
 	private void clearToken(int x, int y) {
-		if (this.board[y][x] == null) {
+		int value = this.board.get(x, y);
+		if (value == 0) {
 			return;
 		}
 		
-		for (Alignment alignment : Alignment.values()) {
-			this.resetAdjacents(x, y, this.board[y][x], alignment);
+		if (((y * BOARD_LENGTH) + x) == this.check5) {
+			this.check5 = -1;
 		}
 		
-		if (this.board[y][x] == this.check5) {
-			this.logs.add(this.players[this.check5.value - 1].name(this, this.check5.value) + " no longer has 5 tokens in a row!");
-			this.check5 = null;
+		this.board.clear(x, y, value);
+		this.patterns.clear((y * BOARD_LENGTH) + x, value);
+		this.hashToken((y * BOARD_LENGTH) + x, value);
+	}
+	
+	/**
+	 * Toggles a token in the hash and in the hash of every symmetry of the board.
+	 * 
+	 * @param cell The cell index of the token.
+	 * @param value The value of the token.
+	 */
+	private void hashToken(int cell, int value) {
+		long[] keys = TOKEN_KEYS[value - 1];
+		this.hash ^= keys[cell];
+		for (int t = 0; t < Symmetry.COUNT; t++) {
+			this.symmetries[t] ^= keys[Symmetry.transform(t, cell)];
 		}
-		
-		this.board[y][x] = null;
+	}
+	
+	/**
+	 * Changes the capture count of a player.
+	 * 
+	 * @param index The player's index (token value - 1).
+	 * @param amount The number of captures to add, negative to remove.
+	 */
+	private void addCaptures(int index, int amount) {
+		this.hash ^= CAPTURE_KEYS[index][this.captures[index]];
+		this.captures[index] += amount;
+		this.hash ^= CAPTURE_KEYS[index][this.captures[index]];
 	}
 	
 	private static String CAPTURE_FORMAT = "%s captured %s's token at %d, %d.";
@@ -406,11 +471,17 @@ public class Gomoku implements Cloneable {
 					p.informChange(this, x2, y2, 0);
 				}
 				
+				int check5 = this.check5;
+				if ((check5 == ((y1 * BOARD_LENGTH) + x1)) || (check5 == ((y2 * BOARD_LENGTH) + x2))) {
+					int token = this.board.get(check5 % BOARD_LENGTH, check5 / BOARD_LENGTH);
+					this.logs.add(this.players[token - 1].name(this, token) + " no longer has 5 tokens in a row!");
+				}
+				
 				this.placed[v1 - 1]--;
 				this.placed[v2 - 1]--;
 				this.clearToken(x1, y1);
 				this.clearToken(x2, y2);
-				this.captures[this.turn % PLAYER_COUNT]++;
+				this.addCaptures(this.turn % PLAYER_COUNT, 1);
 			}
 		}
 	}
@@ -424,8 +495,13 @@ public class Gomoku implements Cloneable {
 	 */
 	private void applyCaptures(int x, int y, int value) {
 		for (Alignment alignment : Alignment.values()) {
-			this.applyCapture(x, y, value, alignment.dx, alignment.dy);
-			this.applyCapture(x, y, value, -(alignment.dx), -(alignment.dy));
+			int flags = this.getPattern(x, y, value, 0, alignment);
+			if ((flags & LinePatterns.CAPTURE_FORWARD) != 0) {
+				this.applyCapture(x, y, value, alignment.dx, alignment.dy);
+			}
+			if ((flags & LinePatterns.CAPTURE_BACKWARD) != 0) {
+				this.applyCapture(x, y, value, -(alignment.dx), -(alignment.dy));
+			}
 		}
 	}
 	
@@ -464,24 +540,56 @@ public class Gomoku implements Cloneable {
 	}
 	
 	/**
-	 * Checks if placing a token would capture any tokens within the direction of dx and dy.
+	 * Gets the cells of a line holding a certain value, like {@link Gomoku#getToken(int, int)} would.
+	 * A value of 0 matches the empty cells, other values that are not a player's match nothing.
 	 * 
-	 * @param x The x coordinate of the placed token.
-	 * @param y The y coordinate of the placed token.
-	 * @param value The value of the placed token.
-	 * @param dx The x direction to attempt a capture in.
-	 * @param dy The y direction to attempt a capture in.
-	 * @return 1 for capture, 0 for no capture.
+	 * @param value The token value.
+	 * @param line The index of the line.
+	 * @return A mask of the positions within the line holding the value.
 	 */
-	private int checkCapture(int x, int y, int value, int dx, int dy) {
-		if (this.getToken(x + (dx * 3), y + (dy * 3)) == value) {
-			int v1 = this.getToken(x + (dx * 1), y + (dy * 1));
-			int v2 = this.getToken(x + (dx * 2), y + (dy * 2));
-			if ((v1 > 0) && (v1 != value) && (v2 > 0) && (v2 != value)) {
-				return (1);
-			}
+	private int getLine(int value, int line) {
+		if (value == 0) {
+			return (Bitboard.getValidMask(line) & ~(this.board.getOccupied(line)));
+		}
+		if ((value < 0) || (value > PLAYER_COUNT)) {
+			return (0);
 		}
-		return (0);
+		return (this.board.getLine(value, line));
+	}
+	
+	/**
+	 * Looks up the window around a cell along an alignment, see {@link LinePatterns}.
+	 * The cell must be on the board.
+	 * 
+	 * @param x The x coordinate of the cell.
+	 * @param y The y coordinate of the cell.
+	 * @param value The value of the player seeing the window.
+	 * @param other The value of the opponent, or 0 to count every other token as the opponent's.
+	 * @param alignment The alignment of the window.
+	 * @return The {@link LinePatterns} flags of the window.
+	 */
+	private int getPattern(int x, int y, int value, int other, Alignment alignment) {
+		int line = Bitboard.line(alignment, x, y);
+		int own = this.getLine(value, line);
+		int opponent = (other == 0) ? (this.board.getOccupied(line) & ~own) : this.board.getLine(other, line);
+		return (LinePatterns.get(LinePatterns.index(own, opponent, Bitboard.getValidMask(line), Bitboard.position(alignment, x, y))));
+	}
+	
+	/**
+	 * Gets the {@link LinePatterns} flags describing a cell along an alignment, as seen by a player.
+	 * This answers most rule questions about the cell at once.
+	 * 
+	 * @param x The x coordinate of the cell.
+	 * @param y The y coordinate of the cell.
+	 * @param value The value of the player.
+	 * @param alignment The alignment to look along.
+	 * @return The flags of the cell, or 0 if the cell is off the board or the value is not a player's.
+	 */
+	public int getLinePattern(int x, int y, int value, Alignment alignment) {
+		if ((x < 0) || (x >= BOARD_LENGTH) || (y < 0) || (y >= BOARD_LENGTH) || (value <= 0) || (value > PLAYER_COUNT)) {
+			return (0);
+		}
+		return (this.getPattern(x, y, value, 0, alignment));
 	}
 	
 	/**
@@ -493,23 +601,27 @@ public class Gomoku implements Cloneable {
 	 * @return The number of captures that would occur if the token would be placed.
 	 */
 	public int countCaptures(int x, int y, int value) {
+		if ((x < 0) || (x >= BOARD_LENGTH) || (y < 0) || (y >= BOARD_LENGTH)) {
+			return (0);
+		}
+		
 		int captures = 0;
 		for (Alignment alignment : Alignment.values()) {
-			captures += this.checkCapture(x, y, value, alignment.dx, alignment.dy);
-			captures += this.checkCapture(x, y, value, -(alignment.dx), -(alignment.dy));
+			int flags = this.getPattern(x, y, value, 0, alignment);
+			captures += Integer.bitCount(flags & (LinePatterns.CAPTURE_FORWARD | LinePatterns.CAPTURE_BACKWARD));
 		}
 		return (captures);
 	}
 	
 	/**
-	 * Checks if placing this token would put it in a state of capture within the direction of dx and dy.
+	 * Checks if a token would be in a state of capture within the direction of dx and dy.
 	 * 
 	 * @param x The x coordinate of the token.
 	 * @param y The y coordinate of the token.
 	 * @param value The value of the token.
-	 * @param dx The x direction to attempt a capture in.
-	 * @param dy The y direction to attempt a capture in.
-	 * @return Whether or not placing this token would put it in a state of capture in this direction.
+	 * @param dx The x direction to check in.
+	 * @param dy The y direction to check in.
+	 * @return Whether or not the token would be in a state of capture in this direction.
 	 */
 	private boolean checkCaptured(int x, int y, int value, int dx, int dy) {
 		int prev = this.getToken(x - dx, y - dy);
@@ -534,9 +646,21 @@ public class Gomoku implements Cloneable {
 	 * @return Whether or not placing the token would put it in a state of capture.
 	 */
 	public boolean isCaptured(int x, int y, int value) {
+		// The free three check asks about cells off the board, answer those as the rules always have
+		if ((x < 0) || (x >= BOARD_LENGTH) || (y < 0) || (y >= BOARD_LENGTH)) {
+			for (Alignment alignment : Alignment.values()) {
+				if (this.checkCaptured(x, y, value, alignment.dx, alignment.dy)) {
+					return (true);
+				}
+			}
+			return (false);
+		}
+		// Both tokens around a captured token must belong to the same player
 		for (Alignment alignment : Alignment.values()) {
-			if (this.checkCaptured(x, y, value, alignment.dx, alignment.dy)) {
-				return (true);
+			for (int i = 1; i <= PLAYER_COUNT; i++) {
+				if ((i != value) && ((this.getPattern(x, y, value, i, alignment) & LinePatterns.CAPTURED) != 0)) {
+					return (true);
+				}
 			}
 		}
 		return (false);
@@ -584,7 +708,10 @@ public class Gomoku implements Cloneable {
 	 * @return Whether or not the token is in danger of being captured in a certain alignment.
 	 */
 	public boolean isInDanger(int x, int y, int value, Alignment alignment) {
-		return (this.checkDanger(x, y, value, alignment.dx, alignment.dy));
+		if ((x < 0) || (x >= BOARD_LENGTH) || (y < 0) || (y >= BOARD_LENGTH) || (value <= 0) || (value > PLAYER_COUNT)) {
+			return (this.checkDanger(x, y, value, alignment.dx, alignment.dy));
+		}
+		return ((this.getPattern(x, y, value, 0, alignment) & LinePatterns.DANGER) != 0);
 	}
 	
 	/**
@@ -597,7 +724,7 @@ public class Gomoku implements Cloneable {
 	 */
 	public boolean isInDanger(int x, int y, int value) {
 		for (Alignment alignment : Alignment.values()) {
-			if (this.checkDanger(x, y, value, alignment.dx, alignment.dy)) {
+			if (this.isInDanger(x, y, value, alignment)) {
 				return (true);
 			}
 		}
@@ -605,68 +732,28 @@ public class Gomoku implements Cloneable {
 	}
 	
 	/**
-	 * Checks for a free three within the direction of dx and dy.
+	 * Checks for a free three along an alignment.
 	 * 
 	 * @param x The x coordinate of the token.
 	 * @param y The y coordinate of the token.
 	 * @param value The value of the token.
-	 * @param dx The x direction to attempt a capture in.
-	 * @param dy The y direction to attempt a capture in.
-	 * @return Whether or not the token would create a free three in this direction.
+	 * @param alignment The alignment to check.
+	 * @return Whether or not the token would create a free three along this alignment.
 	 */
-	private boolean createsFreeThree(int x, int y, int value, int dx, int dy) {
-		int prev = 0;
-		int next = 0;
-		
-		int last = 0;
-		boolean spaced = false;
-		
-		for (int i = 1; ; i++) {
-			int token = this.getToken(x - (dx * i), y - (dy * i));
-			if (((token != 0) && (token != value)) || ((token == 0) && this.isCaptured(x + (dx * i), y + (dy * i), value))) {
-				if ((i == 1) || (last != 0)) {
-					return (false);
-				}
-				break;
-			}
-			last = token;
-			
-			if (token == 0) {
-				if (!spaced) {
-					spaced = true;
-					continue;
-				}
-				break;
-			}
-			prev++;
-		}
-		
-		// The last previous token was the space, ignore it
-		if (last == 0) {
-			spaced = false;
+	private boolean checkFreeThree(int x, int y, int value, Alignment alignment) {
+		int flags = this.getPattern(x, y, value, 0, alignment);
+		if ((flags & LinePatterns.FREE_THREE) == 0) {
+			return (false);
 		}
 		
-		for (int i = 1; ; i++) {
-			int token = this.getToken(x + (dx * i), y + (dy * i));
-			if (((token != 0) && (token != value)) || ((token == 0) && this.isCaptured(x + (dx * i), y + (dy * i), value))) {
-				if ((i == 1) || (last != 0)) {
-					return (false);
-				}
-				break;
+		// An empty cell in a capture breaks the three, the rules check for it on the cells ahead
+		int checks = (flags & LinePatterns.CHECK_MASK) >>> LinePatterns.CHECK_SHIFT;
+		for (int i = 1; checks != 0; i++, checks >>>= 1) {
+			if (((checks & 1) != 0) && this.isCaptured(x + (alignment.dx * i), y + (alignment.dy * i), value)) {
+				return (false);
 			}
-			last = token;
-			
-			if (token == 0) {
-				if (!spaced) {
-					spaced = true;
-					continue;
-				}
-				break;
-			}
-			next++;
 		}
-		
-		return ((prev + 1 + next) == (ADJACENT_TO_WIN - 2));
+		return (true);
 	}
 	
 	/**
@@ -679,7 +766,10 @@ public class Gomoku implements Cloneable {
 	 * @return Whether or not the token would create a double three.
 	 */
 	public boolean createsFreeThree(int x, int y, int value, Alignment alignment) {
-		return (this.createsFreeThree(x, y, value, alignment.dx, alignment.dy));
+		if ((x < 0) || (x >= BOARD_LENGTH) || (y < 0) || (y >= BOARD_LENGTH) || (value <= 0) || (value > PLAYER_COUNT)) {
+			return (false);
+		}
+		return (this.checkFreeThree(x, y, value, alignment));
 	}
 	
 	/**
@@ -691,15 +781,91 @@ public class Gomoku implements Cloneable {
 	 * @return Whether or not the token would create a double three.
 	 */
 	public boolean createsDoubleThree(int x, int y, int value) {
+		if ((x < 0) || (x >= BOARD_LENGTH) || (y < 0) || (y >= BOARD_LENGTH) || (value <= 0) || (value > PLAYER_COUNT)) {
+			return (false);
+		}
+		
 		int threes = 0;
 		for (Alignment alignment : Alignment.values()) {
-			if (this.createsFreeThree(x, y, value, alignment.dx, alignment.dy)) {
+			if (this.checkFreeThree(x, y, value, alignment)) {
 				threes++;
 			}
 		}
 		return (threes >= 2);
 	}
 	
+	/**
+	 * Checks if the rules allow a player to place a token.
+	 * 
+	 * @param x The x coordinate for the token.
+	 * @param y The y coordinate for the token.
+	 * @param value The value of the token.
+	 * @return Whether or not the token may be placed.
+	 */
+	public boolean isLegalMove(int x, int y, int value) {
+		if (this.getToken(x, y) != 0) {
+			return (false);
+		}
+		if (this.isCaptured(x, y, value)) {
+			return (false);
+		}
+		return (!(this.createsDoubleThree(x, y, value)) || (this.countCaptures(x, y, value) > 0));
+	}
+	
+	/**
+	 * Checks if there are no tokens on the board.
+	 * 
+	 * @return Whether or not the board is empty.
+	 */
+	private boolean isEmpty() {
+		for (int i = 0; i < PLAYER_COUNT; i++) {
+			if (this.placed[i] != 0) {
+				return (false);
+			}
+		}
+		return (true);
+	}
+	
+	/**
+	 * Checks if a cell is worth considering as a move.
+	 * Candidates are the empty cells within {@link Bitboard#NEARBY} cells of a token,
+	 * or every empty cell while the board is empty.
+	 * 
+	 * @param x The x coordinate of the cell.
+	 * @param y The y coordinate of the cell.
+	 * @return Whether or not the cell is a candidate move.
+	 */
+	public boolean isCandidate(int x, int y) {
+		if (this.getToken(x, y) != 0) {
+			return (false);
+		}
+		return (this.board.isFrontier((y * BOARD_LENGTH) + x) || this.isEmpty());
+	}
+	
+	/**
+	 * Lists the legal moves within {@link Bitboard#NEARBY} cells of a token, in cell order.
+	 * On an empty board the only candidate is the center.
+	 * Cells are given as indices, (y * BOARD_LENGTH) + x.
+	 * 
+	 * @param value The value of the player to move.
+	 * @param moves The array to store the moves in, it should fit every cell of the board.
+	 * @return The number of moves stored.
+	 */
+	public int getCandidateMoves(int value, int[] moves) {
+		if (this.isEmpty()) {
+			moves[0] = ((BOARD_LENGTH / 2) * BOARD_LENGTH) + (BOARD_LENGTH / 2);
+			return (1);
+		}
+		
+		int count = 0;
+		for (int cell = this.board.nextFrontier(0); cell >= 0; cell = this.board.nextFrontier(cell + 1)) {
+			if (this.isLegalMove(cell % BOARD_LENGTH, cell / BOARD_LENGTH, value)) {
+				moves[count++] = cell;
+			}
+		}
+		return (count);
+	}
+	
 	/**
 	 * Validates if placing a token at the given coordinates is allowed.
 	 * 
@@ -741,43 +907,219 @@ public class Gomoku implements Cloneable {
 		return (true);
 	}
 	
+	private static final int ROW_PLACED = 1;
+	private static final int ROW_BROKEN = 2;
+	private static final int ROW_WON = 4;
+	
+	/**
+	 * Checks if a token is part of a row of ADJACENT_TO_WIN or more tokens in any alignment.
+	 * 
+	 * @param x The x coordinate of the token.
+	 * @param y The y coordinate of the token.
+	 * @return Whether or not the token is part of a winning row.
+	 */
+	private boolean hasRow(int x, int y) {
+		for (Alignment alignment : Alignment.values()) {
+			if (this.getAdjacentTokenCount(x, y, alignment) >= ADJACENT_TO_WIN) {
+				return (true);
+			}
+		}
+		return (false);
+	}
+	
 	/**
 	 * Checks if the placed piece binds a row of ADJACENT_TO_WIN or more tokens.
 	 * If it does, it saves the context of the token and waits a turn to check for interruptions.
-	 * If not interrupted, a player is awarded with a win.
+	 * If a row saved on the previous turn was not interrupted, its player is awarded with a win.
+	 * 
+	 * @param x The x coordinate of the placed token.
+	 * @param y The y coordinate of the placed token.
+	 * @return A combination of ROW_PLACED, ROW_BROKEN and ROW_WON describing what happened.
+	 */
+	private int updateRows(int x, int y) {
+		int events = 0;
+		if (this.check5 >= 0) {
+			int cx = this.check5 % BOARD_LENGTH;
+			int cy = this.check5 / BOARD_LENGTH;
+			if (this.hasRow(cx, cy)) {
+				this.winner = this.board.get(cx, cy);
+				return (ROW_WON);
+			}
+			this.check5 = -1;
+			events |= ROW_BROKEN;
+		}
+		
+		if (this.hasRow(x, y)) {
+			this.check5 = (y * BOARD_LENGTH) + x;
+			events |= ROW_PLACED;
+		}
+		return (events);
+	}
+	
+	/**
+	 * Checks if the placed piece binds a row of ADJACENT_TO_WIN or more tokens, logging the outcome.
+	 * See {@link Gomoku#updateRows(int, int)}.
 	 * 
 	 * @param x The x coordinate of the placed token.
 	 * @param y The y coordinate of the placed token.
 	 * @param value The value of the placed token.
 	 */
 	private void checkAdjacent(int x, int y, int value) {
-		if (this.check5 == null) {
-			for (int i = 0; i < Alignment.values().length; i++) {
-				if (this.board[y][x].adjacent[i] >= ADJACENT_TO_WIN) {
-					this.check5 = this.board[y][x];
-					this.logs.add(String.format("%s placed at least %d tokens in a row!",
-							this.players[value - 1].name(this, value), ADJACENT_TO_WIN));
-					this.logs.add("This move must be countered before the next turn or they will win!");
-					break;
-				}
-			}
+		int previous = 0;
+		if (this.check5 >= 0) {
+			previous = this.board.get(this.check5 % BOARD_LENGTH, this.check5 / BOARD_LENGTH);
 		}
-		else {
-			for (int i = 0; i < Alignment.values().length; i++) {
-				if (this.check5.adjacent[i] >= ADJACENT_TO_WIN) {
-					this.winner = this.check5.value;
-					this.logs.add(this.players[this.check5.value - 1].name(this, this.check5.value) + " has won!");
-					break;
-				}
+		
+		int events = this.updateRows(x, y);
+		if ((events & ROW_WON) != 0) {
+			this.logs.add(this.players[previous - 1].name(this, previous) + " has won!");
+		}
+		if ((events & ROW_BROKEN) != 0) {
+			this.logs.add(String.format("%s no longer has %d tokens in a row!",
+					this.players[previous - 1].name(this, previous), ADJACENT_TO_WIN));
+		}
+		if ((events & ROW_PLACED) != 0) {
+			this.logs.add(String.format("%s placed at least %d tokens in a row!",
+					this.players[value - 1].name(this, value), ADJACENT_TO_WIN));
+			this.logs.add("This move must be countered before the next turn or they will win!");
+		}
+	}
+	
+	/**
+	 * Pushes a value onto the move history, growing it if needed.
+	 * 
+	 * @param value The value to push.
+	 */
+	private void pushHistory(int value) {
+		if (this.historyLength == this.history.length) {
+			this.history = Arrays.copyOf(this.history, this.history.length * 2);
+		}
+		this.history[this.historyLength++] = value;
+	}
+	
+	/**
+	 * Removes a pair of tokens (if possible) captured by a search move within the direction of dx and dy.
+	 * Every removed token is recorded on the move history.
+	 * 
+	 * @param x The x coordinate of the placed token.
+	 * @param y The y coordinate of the placed token.
+	 * @param value The value of the placed token.
+	 * @param dx The x direction to attempt a capture in.
+	 * @param dy The y direction to attempt a capture in.
+	 * @return The number of removed tokens.
+	 */
+	private int removeCapture(int x, int y, int value, int dx, int dy) {
+		if (this.getToken(x + (dx * 3), y + (dy * 3)) != value) {
+			return (0);
+		}
+		
+		int x1 = x + dx;
+		int y1 = y + dy;
+		int x2 = x + (dx * 2);
+		int y2 = y + (dy * 2);
+		
+		int v1 = this.getToken(x1, y1);
+		int v2 = this.getToken(x2, y2);
+		if ((v1 <= 0) || (v1 == value) || (v2 <= 0) || (v2 == value)) {
+			return (0);
+		}
+		
+		this.pushHistory((v1 << 16) | ((y1 * BOARD_LENGTH) + x1));
+		this.pushHistory((v2 << 16) | ((y2 * BOARD_LENGTH) + x2));
+		this.placed[v1 - 1]--;
+		this.placed[v2 - 1]--;
+		this.clearToken(x1, y1);
+		this.clearToken(x2, y2);
+		this.addCaptures(value - 1, 1);
+		return (2);
+	}
+	
+	/**
+	 * Plays a move without notifying any controllers, reporters or logs, so that it can be undone.
+	 * This is meant for AIs to walk a search tree on a single instance, see {@link Gomoku#unmakeMove()}.
+	 * The move is not validated against the rules, see {@link Gomoku#isCaptured(int, int, int)}
+	 * and {@link Gomoku#createsDoubleThree(int, int, int)}.
+	 * 
+	 * @param x The x coordinate to place at.
+	 * @param y The y coordinate to place at.
+	 * @param value The value of the token to place.
+	 * @return Whether or not the move was made. Moves onto occupied cells or a finished game are refused.
+	 */
+	public boolean makeMove(int x, int y, int value) {
+		if ((this.winner != 0) || (value <= 0) || (value > PLAYER_COUNT) || (this.getToken(x, y) != 0)) {
+			return (false);
+		}
+		
+		// A capture may clear the pending row, the row from before the move is what undoing it restores
+		int check5 = this.check5;
+		int start = this.historyLength;
+		this.setToken(x, y, value);
+		this.placed[value - 1]++;
+		
+		for (Alignment alignment : Alignment.values()) {
+			int flags = this.getPattern(x, y, value, 0, alignment);
+			if ((flags & LinePatterns.CAPTURE_FORWARD) != 0) {
+				this.removeCapture(x, y, value, alignment.dx, alignment.dy);
 			}
-			
-			if (this.winner == 0) {
-				this.logs.add(String.format("%s no longer has %d tokens in a row!",
-						this.players[this.check5.value - 1].name(this, this.check5.value), ADJACENT_TO_WIN));
-				this.check5 = null;
-				this.checkAdjacent(x, y, value);
+			if ((flags & LinePatterns.CAPTURE_BACKWARD) != 0) {
+				this.removeCapture(x, y, value, -(alignment.dx), -(alignment.dy));
 			}
 		}
+		
+		this.pushHistory(check5);
+		this.pushHistory(this.historyLength - start - 1);
+		this.pushHistory((value << 16) | ((y * BOARD_LENGTH) + x));
+		
+		if (this.captures[value - 1] >= CAPTURES_TO_WIN) {
+			this.winner = value;
+		}
+		else {
+			this.updateRows(x, y);
+		}
+		
+		if (this.winner == 0) {
+			this.turn++;
+		}
+		return (true);
+	}
+	
+	/**
+	 * Takes back the last move played by {@link Gomoku#makeMove(int, int, int)}.
+	 * Only the tokens changed by that move are touched.
+	 * 
+	 * @return Whether or not there was a move to take back.
+	 */
+	public boolean unmakeMove() {
+		if (this.historyLength == 0) {
+			return (false);
+		}
+		
+		int move = this.history[--this.historyLength];
+		int removed = this.history[--this.historyLength];
+		int check5 = this.history[--this.historyLength];
+		
+		int value = move >>> 16;
+		int cell = move & 0xFFFF;
+		
+		if (this.winner == 0) {
+			this.turn--;
+		}
+		this.winner = 0;
+		
+		this.clearToken(cell % BOARD_LENGTH, cell / BOARD_LENGTH);
+		this.placed[value - 1]--;
+		
+		this.addCaptures(value - 1, -(removed / 2));
+		for (int i = 0; i < removed; i++) {
+			int token = this.history[--this.historyLength];
+			int v = token >>> 16;
+			int c = token & 0xFFFF;
+			this.setToken(c % BOARD_LENGTH, c / BOARD_LENGTH, v);
+			this.placed[v - 1]++;
+		}
+		
+		this.check5 = check5;
+		return (true);
 	}
 	
 	/**
@@ -882,11 +1224,10 @@ public class Gomoku implements Cloneable {
 	 */
 	public void reset() {
 		if (!this.running) {
-			for (int y = 0; y < BOARD_LENGTH; y++) {
-				for (int x = 0; x < BOARD_LENGTH; x++) {
-					this.board[y][x] = null;
-				}
-			}
+			this.board.clear();
+			this.patterns.clear();
+			this.hash = 0;
+			Arrays.fill(this.symmetries, 0);
 			
 			if (this.started) {
 				for (PlayerController p : this.set) {
@@ -901,8 +1242,9 @@ public class Gomoku implements Cloneable {
 			
 			this.logs.clear();
 			this.turn = 0;
-			this.check5 = null;
+			this.check5 = -1;
 			this.winner = 0;
+			this.historyLength = 0;
 			this.started = false;
 			this.abort = false;
 		}
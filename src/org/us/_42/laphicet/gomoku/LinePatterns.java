@@ -0,0 +1,281 @@
+package org.us._42.laphicet.gomoku;
+
+/**
+ * Precomputed answers to the rule questions about a cell, from the cells around it along one line.
+ * 
+ * A window is the WINDOW cells on either side of a cell, seen by one player.
+ * Its index holds a bit per cell for the player's tokens in the low byte, and a bit per cell for
+ * the opponent's tokens in the high byte. Cells off the board set both bits.
+ * Within each byte, the lowest four bits are the cells before the cell, farthest first,
+ * and the highest four bits are the cells after it, nearest first.
+ * 
+ * Every window maps to a combination of the flags below, so each question is a single lookup.
+ */
+public class LinePatterns {
+	public static final int WINDOW = 4;
+	
+	/**
+	 * Placing a token forms a free three, as long as no empty cell in the CHECK_MASK would be captured.
+	 */
+	public static final int FREE_THREE = 1 << 0;
+	
+	/**
+	 * The cells after the cell (bit 0 is the nearest) on which {@link Gomoku#isCaptured(int, int, int)}
+	 * decides whether a FREE_THREE stands.
+	 */
+	public static final int CHECK_SHIFT = 1;
+	public static final int CHECK_MASK = 0xF << CHECK_SHIFT;
+	
+	/**
+	 * Placing a token captures the two tokens after it.
+	 */
+	public static final int CAPTURE_FORWARD = 1 << 5;
+	
+	/**
+	 * Placing a token captures the two tokens before it.
+	 */
+	public static final int CAPTURE_BACKWARD = 1 << 6;
+	
+	/**
+	 * Placing a token puts it in a state of capture.
+	 */
+	public static final int CAPTURED = 1 << 7;
+	
+	/**
+	 * A token on the cell is in danger of being captured.
+	 */
+	public static final int DANGER = 1 << 8;
+	
+	/**
+	 * A token on the cell is part of a row of ADJACENT_TO_WIN or more tokens.
+	 */
+	public static final int FIVE = 1 << 9;
+	
+	private static final int OWN = 1;
+	private static final int OTHER = 2;
+	private static final int EMPTY = 0;
+	private static final int OFF = OWN | OTHER;
+	
+	private static final int[] TABLE = new int[1 << 16];
+	
+	static {
+		for (int index = 0; index < TABLE.length; index++) {
+			TABLE[index] = compute(index);
+		}
+	}
+	
+	/**
+	 * Builds the index of the window around a cell.
+	 * 
+	 * @param own The player's tokens along the line, see {@link Bitboard#getLine(int, int)}.
+	 * @param other The opponent's tokens along the line.
+	 * @param valid The positions of the line on the board, see {@link Bitboard#getValidMask(int)}.
+	 * @param position The position of the cell within the line.
+	 * @return The index of the window.
+	 */
+	public static int index(int own, int other, int valid, int position) {
+		int off = ~(window(valid, position)) & 0xFF;
+		return ((window(own, position) | off) | ((window(other, position) | off) << 8));
+	}
+	
+	/**
+	 * Gets the flags of a window.
+	 * 
+	 * @param index The index of the window, see {@link LinePatterns#index(int, int, int, int)}.
+	 * @return A combination of the flags describing the window.
+	 */
+	public static int get(int index) {
+		return (TABLE[index]);
+	}
+	
+	/**
+	 * Extracts the cells around a position from a line, leaving out the position itself.
+	 * 
+	 * @param bits The bits of the line.
+	 * @param position The position within the line.
+	 * @return The WINDOW cells before and after the position, packed into a byte.
+	 */
+	private static int window(int bits, int position) {
+		int window = ((bits << WINDOW) >>> position) & ((1 << ((WINDOW * 2) + 1)) - 1);
+		return ((window & 0xF) | ((window >>> 1) & 0xF0));
+	}
+	
+	/**
+	 * Reads a cell from a window index.
+	 * 
+	 * @param index The index of the window.
+	 * @param offset The offset of the cell from the center, from -WINDOW to WINDOW but not 0.
+	 * @return One of OWN, OTHER, EMPTY or OFF.
+	 */
+	private static int cell(int index, int offset) {
+		int bit = (offset < 0) ? (offset + WINDOW) : (offset + WINDOW - 1);
+		return (((index >>> bit) & 1) | (((index >>> (bit + 8)) & 1) << 1));
+	}
+	
+	/**
+	 * Reads a cell as the free three check of the rules does.
+	 * 
+	 * @param index The index of the window.
+	 * @param offset The offset of the cell from the center.
+	 * @return 1 for the player's token, 0 for an empty cell, -1 for anything else.
+	 */
+	private static int token(int index, int offset) {
+		int cell = cell(index, offset);
+		if (cell == OWN) {
+			return (1);
+		}
+		return ((cell == EMPTY) ? 0 : -1);
+	}
+	
+	/**
+	 * Walks a window the same way the free three check of the rules does,
+	 * assuming no empty cell would be captured.
+	 * Whenever a captured empty cell would end the walk with no free three,
+	 * the cell it is checked on is added to the result.
+	 * 
+	 * @param index The index of the window.
+	 * @return FREE_THREE and the CHECK_MASK cells, or 0 if there is no free three.
+	 */
+	private static int computeFreeThree(int index) {
+		int checks = 0;
+		
+		int prev = 0;
+		int next = 0;
+		
+		int last = 0;
+		boolean spaced = false;
+		
+		for (int i = 1; ; i++) {
+			// Walking past the window means at least three tokens on this side
+			if (i > WINDOW) {
+				return (0);
+			}
+			
+			int token = token(index, -i);
+			if (token < 0) {
+				if ((i == 1) || (last != 0)) {
+					return (0);
+				}
+				break;
+			}
+			// The rules check the cell on the opposite side for captures
+			if ((token == 0) && ((i == 1) || (last != 0))) {
+				checks |= 1 << (i - 1);
+			}
+			last = token;
+			
+			if (token == 0) {
+				if (!spaced) {
+					spaced = true;
+					continue;
+				}
+				break;
+			}
+			prev++;
+		}
+		
+		// The last previous token was the space, ignore it
+		if (last == 0) {
+			spaced = false;
+		}
+		
+		for (int i = 1; ; i++) {
+			if (i > WINDOW) {
+				return (0);
+			}
+			
+			int token = token(index, i);
+			if (token < 0) {
+				if ((i == 1) || (last != 0)) {
+					return (0);
+				}
+				break;
+			}
+			if ((token == 0) && ((i == 1) || (last != 0))) {
+				checks |= 1 << (i - 1);
+			}
+			last = token;
+			
+			if (token == 0) {
+				if (!spaced) {
+					spaced = true;
+					continue;
+				}
+				break;
+			}
+			next++;
+		}
+		
+		if ((prev + 1 + next) != (Gomoku.ADJACENT_TO_WIN - 2)) {
+			return (0);
+		}
+		return (FREE_THREE | (checks << CHECK_SHIFT));
+	}
+	
+	/**
+	 * Checks if a window leaves a token on its center in danger of capture.
+	 * 
+	 * @param index The index of the window.
+	 * @return Whether or not the token is in danger.
+	 */
+	private static boolean computeDanger(int index) {
+		int prev = cell(index, -1);
+		int next = cell(index, 1);
+		
+		if ((prev == OWN) && (next == OTHER)) {
+			return (cell(index, -2) == EMPTY);
+		}
+		if ((next == OWN) && (prev == OTHER)) {
+			return (cell(index, 2) == EMPTY);
+		}
+		if ((prev == OWN) && (next == EMPTY)) {
+			return (cell(index, -2) == OTHER);
+		}
+		if ((next == OWN) && (prev == EMPTY)) {
+			return (cell(index, 2) == OTHER);
+		}
+		return (false);
+	}
+	
+	/**
+	 * Computes the flags of a window.
+	 * 
+	 * @param index The index of the window.
+	 * @return A combination of the flags describing the window.
+	 */
+	private static int compute(int index) {
+		int flags = computeFreeThree(index);
+		
+		if ((cell(index, 1) == OTHER) && (cell(index, 2) == OTHER) && (cell(index, 3) == OWN)) {
+			flags |= CAPTURE_FORWARD;
+		}
+		if ((cell(index, -1) == OTHER) && (cell(index, -2) == OTHER) && (cell(index, -3) == OWN)) {
+			flags |= CAPTURE_BACKWARD;
+		}
+		
+		int prev = cell(index, -1);
+		int next = cell(index, 1);
+		if ((prev == OWN) && (next == OTHER) && (cell(index, -2) == OTHER)) {
+			flags |= CAPTURED;
+		}
+		if ((next == OWN) && (prev == OTHER) && (cell(index, 2) == OTHER)) {
+			flags |= CAPTURED;
+		}
+		
+		if (computeDanger(index)) {
+			flags |= DANGER;
+		}
+		
+		int run = 1;
+		for (int i = 1; (i <= WINDOW) && (cell(index, i) == OWN); i++) {
+			run++;
+		}
+		for (int i = 1; (i <= WINDOW) && (cell(index, -i) == OWN); i++) {
+			run++;
+		}
+		if (run >= Gomoku.ADJACENT_TO_WIN) {
+			flags |= FIVE;
+		}
+		return (flags);
+	}
+}
@@ -0,0 +1,235 @@
+package org.us._42.laphicet.gomoku;
+
+import org.us._42.laphicet.gomoku.Gomoku.Alignment;
+
+/**
+ * Running counts of the patterns on a Gomoku board, kept up to date as tokens change.
+ * 
+ * Every run of ADJACENT_TO_WIN cells along a line of the board is a window. A window is open for
+ * a player when it holds their tokens and none of the opponent's, and the number of open windows
+ * of each player is counted by how many tokens they hold: open twos, threes, fours and fives.
+ * 
+ * Every run of 4 cells is a segment. A segment holding a player's token, two of the opponent's
+ * and an empty cell, in that order from either end, is a capture threat of that player.
+ * 
+ * Each cell only belongs to the few windows and segments crossing it, so changing a token only
+ * updates those, and every count can be read without looking at the board.
+ */
+public class PatternCounts {
+	public static final int SEGMENT_LENGTH = 4;
+	
+	private static final int COUNT_BITS = 4;
+	private static final int COUNT_MASK = (1 << COUNT_BITS) - 1;
+	private static final int SEGMENT_SHIFT = 2;
+	
+	// Counts are kept in flat arrays, slot 0 collects the windows and segments that count for nobody
+	private static final int OPEN_SLOTS = 1 + (Gomoku.PLAYER_COUNT * (Gomoku.ADJACENT_TO_WIN + 1));
+	
+	private static final int WINDOW_COUNT;
+	private static final int SEGMENT_COUNT;
+	private static final int[][] CELL_WINDOWS = new int[Bitboard.CELL_COUNT][];
+	private static final int[][] CELL_SEGMENTS = new int[Bitboard.CELL_COUNT][];
+	
+	// The slot counting a window by its packed token counts, and the player threatening a capture in a segment by the 2 bit values of its cells
+	private static final byte[] OPEN = new byte[1 << (Gomoku.PLAYER_COUNT * COUNT_BITS)];
+	private static final byte[] THREATS = new byte[1 << (2 * SEGMENT_LENGTH)];
+	
+	static {
+		int[][] windows = new int[Bitboard.CELL_COUNT][Alignment.values().length * Gomoku.ADJACENT_TO_WIN];
+		int[][] segments = new int[Bitboard.CELL_COUNT][Alignment.values().length * SEGMENT_LENGTH];
+		int[] windowCounts = new int[Bitboard.CELL_COUNT];
+		int[] segmentCounts = new int[Bitboard.CELL_COUNT];
+		int windowCount = 0;
+		int segmentCount = 0;
+		
+		for (Alignment alignment : Alignment.values()) {
+			for (int y = 0; y < Gomoku.BOARD_LENGTH; y++) {
+				for (int x = 0; x < Gomoku.BOARD_LENGTH; x++) {
+					// Start from the first cell of every line
+					if (onBoard(x - alignment.dx, y - alignment.dy)) {
+						continue;
+					}
+					
+					int length = 0;
+					while (onBoard(x + (alignment.dx * length), y + (alignment.dy * length))) {
+						length++;
+					}
+					
+					for (int start = 0; start + Gomoku.ADJACENT_TO_WIN <= length; start++, windowCount++) {
+						for (int i = start; i < start + Gomoku.ADJACENT_TO_WIN; i++) {
+							int cell = ((y + (alignment.dy * i)) * Gomoku.BOARD_LENGTH) + (x + (alignment.dx * i));
+							windows[cell][windowCounts[cell]++] = windowCount;
+						}
+					}
+					for (int start = 0; start + SEGMENT_LENGTH <= length; start++, segmentCount++) {
+						for (int i = start; i < start + SEGMENT_LENGTH; i++) {
+							int cell = ((y + (alignment.dy * i)) * Gomoku.BOARD_LENGTH) + (x + (alignment.dx * i));
+							segments[cell][segmentCounts[cell]++] = (segmentCount * SEGMENT_LENGTH) + (i - start);
+						}
+					}
+				}
+			}
+		}
+		
+		for (int cell = 0; cell < Bitboard.CELL_COUNT; cell++) {
+			CELL_WINDOWS[cell] = new int[windowCounts[cell]];
+			System.arraycopy(windows[cell], 0, CELL_WINDOWS[cell], 0, windowCounts[cell]);
+			CELL_SEGMENTS[cell] = new int[segmentCounts[cell]];
+			System.arraycopy(segments[cell], 0, CELL_SEGMENTS[cell], 0, segmentCounts[cell]);
+		}
+		WINDOW_COUNT = windowCount;
+		SEGMENT_COUNT = segmentCount;
+		
+		for (int window = 0; window < OPEN.length; window++) {
+			int first = window & COUNT_MASK;
+			int second = window >> COUNT_BITS;
+			if ((first != 0) && (second == 0) && (first <= Gomoku.ADJACENT_TO_WIN)) {
+				OPEN[window] = (byte)slot(1, first);
+			}
+			else if ((first == 0) && (second != 0) && (second <= Gomoku.ADJACENT_TO_WIN)) {
+				OPEN[window] = (byte)slot(2, second);
+			}
+		}
+		
+		for (int state = 0; state < THREATS.length; state++) {
+			int first = state & 3;
+			int second = (state >> 2) & 3;
+			int third = (state >> 4) & 3;
+			int last = (state >> 6) & 3;
+			if ((second == 0) || (second != third) || (second > Gomoku.PLAYER_COUNT)) {
+				continue;
+			}
+			
+			int other = (second % Gomoku.PLAYER_COUNT) + 1;
+			if (((first == other) && (last == 0)) || ((first == 0) && (last == other))) {
+				THREATS[state] = (byte)other;
+			}
+		}
+	}
+	
+	private int[] windows = new int[WINDOW_COUNT];
+	private int[] segments = new int[SEGMENT_COUNT];
+	
+	private int[] open = new int[OPEN_SLOTS];
+	private int[] threats = new int[Gomoku.PLAYER_COUNT + 1];
+	
+	/**
+	 * Checks if coordinates lie on the board.
+	 * 
+	 * @param x The x coordinate.
+	 * @param y The y coordinate.
+	 * @return Whether or not the coordinates are on the board.
+	 */
+	private static boolean onBoard(int x, int y) {
+		return ((x >= 0) && (x < Gomoku.BOARD_LENGTH) && (y >= 0) && (y < Gomoku.BOARD_LENGTH));
+	}
+	
+	/**
+	 * Gets the slot counting the open windows of a player holding a number of tokens.
+	 * 
+	 * @param value The player's token value.
+	 * @param tokens The number of tokens.
+	 * @return The index of the slot.
+	 */
+	private static int slot(int value, int tokens) {
+		return (1 + ((value - 1) * (Gomoku.ADJACENT_TO_WIN + 1)) + tokens);
+	}
+	
+	/**
+	 * Gets the number of windows that hold a number of a player's tokens and none of the opponent's.
+	 * 
+	 * @param value The player's token value.
+	 * @param tokens The number of tokens, from 1 to ADJACENT_TO_WIN.
+	 * @return The number of open windows.
+	 */
+	public int getOpenWindows(int value, int tokens) {
+		return (this.open[slot(value, tokens)]);
+	}
+	
+	/**
+	 * Gets the number of captures a player threatens, whether or not the capturing moves are legal.
+	 * 
+	 * @param value The player's token value.
+	 * @return The number of capture threats.
+	 */
+	public int getCaptureThreats(int value) {
+		return (this.threats[value]);
+	}
+	
+	/**
+	 * Updates the windows and segments through a cell for a changed token.
+	 * 
+	 * @param cell The cell index.
+	 * @param value The value of the token.
+	 * @param amount 1 if the token was placed, -1 if it was removed.
+	 */
+	private void update(int cell, int value, int amount) {
+		int[] windows = this.windows;
+		int[] open = this.open;
+		int delta = amount << ((value - 1) * COUNT_BITS);
+		for (int window : CELL_WINDOWS[cell]) {
+			open[OPEN[windows[window]]]--;
+			windows[window] += delta;
+			open[OPEN[windows[window]]]++;
+		}
+		
+		int[] segments = this.segments;
+		int[] threats = this.threats;
+		for (int entry : CELL_SEGMENTS[cell]) {
+			int segment = entry >> SEGMENT_SHIFT;
+			threats[THREATS[segments[segment]]]--;
+			segments[segment] ^= value << (2 * (entry & (SEGMENT_LENGTH - 1)));
+			threats[THREATS[segments[segment]]]++;
+		}
+	}
+	
+	/**
+	 * Counts a placed token, the cell must have been empty.
+	 * 
+	 * @param cell The cell index.
+	 * @param value The value of the token.
+	 */
+	void set(int cell, int value) {
+		this.update(cell, value, 1);
+	}
+	
+	/**
+	 * Uncounts a removed token.
+	 * 
+	 * @param cell The cell index.
+	 * @param value The value of the token being removed.
+	 */
+	void clear(int cell, int value) {
+		this.update(cell, value, -1);
+	}
+	
+	/**
+	 * Resets every count, for an empty board.
+	 */
+	void clear() {
+		for (int i = 0; i < WINDOW_COUNT; i++) {
+			this.windows[i] = 0;
+		}
+		for (int i = 0; i < SEGMENT_COUNT; i++) {
+			this.segments[i] = 0;
+		}
+		for (int i = 0; i < OPEN_SLOTS; i++) {
+			this.open[i] = 0;
+		}
+		for (int i = 0; i <= Gomoku.PLAYER_COUNT; i++) {
+			this.threats[i] = 0;
+		}
+	}
+	
+	/**
+	 * Overwrites these counts with the counts of another board.
+	 * 
+	 * @param counts The counts to copy.
+	 */
+	void copy(PatternCounts counts) {
+		System.arraycopy(counts.windows, 0, this.windows, 0, WINDOW_COUNT);
+		System.arraycopy(counts.segments, 0, this.segments, 0, SEGMENT_COUNT);
+		System.arraycopy(counts.open, 0, this.open, 0, OPEN_SLOTS);
+		System.arraycopy(counts.threats, 0, this.threats, 0, Gomoku.PLAYER_COUNT + 1);
+	}
+}
@@ -0,0 +1,58 @@
+package org.us._42.laphicet.gomoku;
+
+/**
+ * The 8 symmetries of the square Gomoku board, its rotations and reflections.
+ * 
+ * A symmetry is an index from 0 to COUNT - 1. Bit 0 mirrors the x coordinate, bit 1 mirrors
+ * the y coordinate, and bit 2 then swaps both coordinates, so symmetry 0 leaves the board as it is.
+ * Every symmetry maps cell indices, (y * BOARD_LENGTH) + x, through a precomputed table.
+ * 
+ * {@link Gomoku#getCanonicalHash()} and {@link Gomoku#getCanonicalTransform()} name a position
+ * the same way in all of its symmetries. A move stored for the canonical symmetry is mapped back
+ * onto the board with {@link Symmetry#inverse(int, int)}.
+ */
+public class Symmetry {
+	public static final int COUNT = 8;
+	public static final int IDENTITY = 0;
+	
+	private static final int[][] TRANSFORMS = new int[COUNT][Bitboard.CELL_COUNT];
+	private static final int[][] INVERSES = new int[COUNT][Bitboard.CELL_COUNT];
+	
+	static {
+		int last = Gomoku.BOARD_LENGTH - 1;
+		for (int t = 0; t < COUNT; t++) {
+			for (int y = 0; y < Gomoku.BOARD_LENGTH; y++) {
+				for (int x = 0; x < Gomoku.BOARD_LENGTH; x++) {
+					int tx = ((t & 1) != 0) ? (last - x) : x;
+					int ty = ((t & 2) != 0) ? (last - y) : y;
+					int cell = ((t & 4) != 0) ? ((tx * Gomoku.BOARD_LENGTH) + ty) : ((ty * Gomoku.BOARD_LENGTH) + tx);
+					
+					TRANSFORMS[t][(y * Gomoku.BOARD_LENGTH) + x] = cell;
+					INVERSES[t][cell] = (y * Gomoku.BOARD_LENGTH) + x;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Maps a cell of the board onto one of its symmetries.
+	 * 
+	 * @param transform The index of the symmetry.
+	 * @param cell The cell index on the board.
+	 * @return The cell index in the symmetry.
+	 */
+	public static int transform(int transform, int cell) {
+		return (TRANSFORMS[transform][cell]);
+	}
+	
+	/**
+	 * Maps a cell of one of the symmetries back onto the board.
+	 * 
+	 * @param transform The index of the symmetry.
+	 * @param cell The cell index in the symmetry.
+	 * @return The cell index on the board.
+	 */
+	public static int inverse(int transform, int cell) {
+		return (INVERSES[transform][cell]);
+	}
+}
@@ -7,4 +7,32 @@ public interface AIController {
 	 * @return The number of elapsed seconds.
 	 */
 	public double getTimeElapsed();
+	
+	/**
+	 * Returns how many turns deep the last move was searched.
+	 * 
+	 * @return The depth of the last finished search, or 0 if the AI does not report it.
+	 */
+	public default int getDepthReached() {
+		return (0);
+	}
+	
+	/**
+	 * Returns how many positions were visited to calculate the last move.
+	 * 
+	 * @return The number of visited positions, or 0 if the AI does not report it.
+	 */
+	public default long getNodeCount() {
+		return (0);
+	}
+	
+	/**
+	 * Returns the line of play the last move expects, starting with the move itself.
+	 * Moves are cell indices, (y * BOARD_LENGTH) + x.
+	 * 
+	 * @return The moves of the principal variation, or an empty array if the AI does not report it.
+	 */
+	public default int[] getPrincipalVariation() {
+		return (new int[0]);
+	}
 }
@@ -1,95 +1,26 @@
 package org.us._42.laphicet.gomoku.ai;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.LinkedHashSet;
-import java.util.List;
 import java.util.Random;
-import java.util.Set;
-import java.util.TreeSet;
-import java.util.stream.IntStream;
 
 import org.us._42.laphicet.gomoku.Gomoku;
 import org.us._42.laphicet.gomoku.Gomoku.Alignment;
 //import org.us._42.laphicet.gomoku.ai.Lydeka.Play;
 import org.us._42.laphicet.gomoku.PlayerController;
+import org.us._42.laphicet.gomoku.ai.Weights.Weight;
 
-public class Arta implements PlayerController, AIController {
-
-	/**
-	 * Used to hold the current score and its X Y coords
-	 */
-	private static class Play implements Comparable<Play> {
-		private double score;
-		private final int x;
-		private final int y;
-		
-		private Play(double score, int x, int y) {
-			this.score = score;
-			this.x = x;
-			this.y = y;
-		}
-		
-		@Override
-		public int compareTo(Play o) {
-			return (Double.compare(o.score, this.score));
-		}
-	}
-	
-	/**
-	 * Used to hold the current score and go further in to see what the best moves may be
-	 */
-	private class Prediction implements Comparable<Prediction> {
-		private Play move;
-		private double totalScore;
-		private List<Prediction> nextPlay = new ArrayList<Prediction>();
-		private int value;
-		
-		private Prediction(Play givePiece, int value) {
-			this.move = givePiece;
-			this.totalScore = 0;
-			this.value = value;
-		}
-		
-		private double highestScore(List<Prediction> checkMove) {
-			double ret = 0;
-			for (Prediction possibleMoves : checkMove) {
-				possibleMoves.getTotal();
-				if (possibleMoves.totalScore > ret) {
-					ret = possibleMoves.totalScore;
-				}
-			}
-			return (ret);
-		}
-		
-		private void getTotal() {
-			if (value == playerNumber) {
-				this.totalScore += this.move.score;
-			}
-			this.totalScore += this.highestScore(this.nextPlay);
-		}
-		
-		@Override
-		public int compareTo(Prediction o) {
-			return (Double.compare(o.move.score, this.move.score));
-		}
-	}
+public class Arta implements PlayerController, AIController, Tunable {
+	private static final int CELL_COUNT = Gomoku.BOARD_LENGTH * Gomoku.BOARD_LENGTH;
+	private static final int NODE_LIMIT = 1 << 24;
+	private static final Alignment[] ALIGNMENTS = Alignment.values();
 	
 	private int playerNumber;
 	private int enemyNumber;
 	private int[] playerValues = new int[Gomoku.PLAYER_COUNT];
 
 	private double[][] gameBoard = new double[Gomoku.BOARD_LENGTH][Gomoku.BOARD_LENGTH];
-	private double[][] scoreBoard = new double[Gomoku.BOARD_LENGTH][Gomoku.BOARD_LENGTH];
 	
 //	private List<Prediction> minimax = new ArrayList<Prediction>();
 	
-	private static final double PLAYERCHAIN = 2.0;
-	private static final double ENEMYCHAIN = 5.0;
-	private static final double CAPTURE = 3.0;
-	private static final double WILLBECAPTURE = 5.0;
 	private static final double NANO = 1000000000.0;
 	
 	private static final int NEGATIVE = 0;
@@ -99,13 +30,65 @@ public class Arta implements PlayerController, AIController {
 	private final int minmaxDepth;
 	
 	private double timeTaken;
+	private Weights weights = Weights.DEFAULT;
 	private Random randomize = new Random();
 //	private long lastKey;
 	
+	/**
+	 * The prediction tree, kept in flat arrays by level.
+	 * Level 0 is the current position, and the predictions of level k start at offsets[k],
+	 * so that the children of the i-th prediction of a level are predictions i * amount to
+	 * (i + 1) * amount - 1 of the next level. Counts hold the number of children made so far.
+	 */
+	private final int plies;
+	private final int[] offsets;
+	private final int[] cells;
+	private final double[] scores;
+	private final int[] counts;
+	
+	// Whether the tree holds the predictions of the last turn, and the moves played since
+	private boolean predicted = false;
+	private int[] played = new int[Gomoku.PLAYER_COUNT];
+	private int playedCount = 0;
+	
+	// The board of the prediction being scanned, cells are (y * BOARD_LENGTH) + x
+	private int[] board = new int[CELL_COUNT];
+	
+	// The best moves of a scan, and the moves of the current position sorted by total score
+	private int[] bestCells;
+	private double[] bestScores;
+	private int[] rootCells;
+	private double[] rootTotals;
+	
+	// calcValue only looks at the game, so it is computed once per turn for each player and cell
+	private double[][] values = new double[Gomoku.PLAYER_COUNT][CELL_COUNT];
+	private int[][] stamps = new int[Gomoku.PLAYER_COUNT][CELL_COUNT];
+	private int stamp = 0;
+	
 	
 	public Arta(int amount, int depth) {
 		this.minmaxAmount = amount;
 		this.minmaxDepth = depth;
+		this.plies = depth * Gomoku.PLAYER_COUNT;
+		
+		this.offsets = new int[this.plies + 2];
+		long width = 1;
+		for (int k = 0; k <= this.plies; k++) {
+			if ((amount < 1) || (depth < 1) || ((this.offsets[k] + width) > NODE_LIMIT)) {
+				throw new IllegalArgumentException("Arta cannot predict that many moves!");
+			}
+			this.offsets[k + 1] = this.offsets[k] + (int)width;
+			width *= amount;
+		}
+		
+		int nodes = this.offsets[this.plies + 1];
+		this.cells = new int[nodes];
+		this.scores = new double[nodes];
+		this.counts = new int[nodes];
+		this.bestCells = new int[amount];
+		this.bestScores = new double[amount];
+		this.rootCells = new int[amount];
+		this.rootTotals = new double[amount];
 	}
 	
 	/**
@@ -190,26 +173,26 @@ public class Arta implements PlayerController, AIController {
 		int blocked = 1;
 		int chainLength = 0;
 		
-		for (Alignment chain : Alignment.values()) { 
+		for (Alignment chain : ALIGNMENTS) { 
 			if (game.getToken(x - chain.dx, y - chain.dy) == value) {
 				chainLength = game.getAdjacentTokenCount(x - chain.dx, y - chain.dy, chain);
 				blocked += checkIfBlocked(game, x - chain.dx, y - chain.dy, value, chainLength, chain, Arta.NEGATIVE);
-				tmp += Math.pow(PLAYERCHAIN, chainLength);
+				tmp += Math.pow(this.weights.get(Weight.ARTA_PLAYER_CHAIN), chainLength);
 			}
 			else if (game.getToken(x - chain.dx, y - chain.dy) > 0) {
 				chainLength = game.getAdjacentTokenCount(x - chain.dx, y - chain.dy, chain);
 				blocked += checkIfBlocked(game, x - chain.dx, y - chain.dy, value, chainLength, chain, Arta.NEGATIVE);
-				tmp += Math.pow(ENEMYCHAIN, chainLength);
+				tmp += Math.pow(this.weights.get(Weight.ARTA_ENEMY_CHAIN), chainLength);
 			}
 			if (game.getToken(x + chain.dx, y + chain.dy) == value) {
 				chainLength = game.getAdjacentTokenCount(x + chain.dx, y + chain.dy, chain);
 				blocked += checkIfBlocked(game, x + chain.dx, y + chain.dy, value, chainLength, chain, Arta.POSITIVE);
-				tmp += Math.pow(PLAYERCHAIN, chainLength);
+				tmp += Math.pow(this.weights.get(Weight.ARTA_PLAYER_CHAIN), chainLength);
 			}
 			else if (game.getToken(x + chain.dx, y + chain.dy) > 0) {
 				chainLength = game.getAdjacentTokenCount(x + chain.dx, y + chain.dy, chain);
 				blocked += checkIfBlocked(game, x + chain.dx, y + chain.dy, value, chainLength, chain, Arta.POSITIVE);
-				tmp += Math.pow(ENEMYCHAIN, chainLength);
+				tmp += Math.pow(this.weights.get(Weight.ARTA_ENEMY_CHAIN), chainLength);
 			}
 //			tmp /= blocked;
 			tmp -= blocked;
@@ -223,63 +206,126 @@ public class Arta implements PlayerController, AIController {
 	}
 	
 	/**
-	 * Creates a copy of the current game state into gameBoard
+	 * Gets the value of the player making the predictions of a level
 	 * 
-	 * @param game The gomoku game to copy the state from
+	 * @param level The level of the predictions, 1 for the moves of the current position
+	 * @return The value of the player
 	 */
-	public int[][] copyMoveBoard(int[][] game) {
-		int[][] copyBoard = new int[Gomoku.BOARD_LENGTH][Gomoku.BOARD_LENGTH];
-		for (int x = 0, y = 0; x < Gomoku.BOARD_LENGTH && y < Gomoku.BOARD_LENGTH; x++) {
-			copyBoard[x][y] = game[x][y];
-			if (x == 18) {
-				x = -1;
-				y++;
+	private int levelValue(int level) {
+		return (this.playerValues[(level - 1) % 2]);
+	}
+	
+	/**
+	 * Makes the predictions following a prediction, then the predictions following those until the maximum depth.
+	 * Predictions made on an earlier turn are kept, only the missing ones are scanned for.
+	 * The moves leading to the prediction must be on the board, and are taken off again before returning.
+	 * 
+	 * @param game The gomoku game to score the moves on
+	 * @param level The level of the prediction
+	 * @param index The index of the prediction in its level
+	 */
+	private void predict(Gomoku game, int level, int index) {
+		int node = this.offsets[level] + index;
+		int first = this.offsets[level + 1] + (index * this.minmaxAmount);
+		if (this.counts[node] == 0) {
+			// The moves of the current position are scanned for the player, as are the replies to them
+			int count = this.scanBoard(game, (level == 0) ? this.playerNumber : this.levelValue(level));
+			for (int i = 0; i < count; i++) {
+				this.cells[first + i] = this.bestCells[i];
+				this.scores[first + i] = this.bestScores[i];
+				this.counts[first + i] = 0;
 			}
+			this.counts[node] = count;
+		}
+		
+		// Predictions only go further when there are enough moves to choose from
+		if ((this.counts[node] < this.minmaxAmount) || ((level + 2) > this.plies)) {
+			return;
+		}
+		
+		int value = this.levelValue(level + 1);
+		for (int i = 0; i < this.minmaxAmount; i++) {
+			int cell = this.cells[first + i];
+			this.board[cell] = value;
+			this.predict(game, level + 1, (index * this.minmaxAmount) + i);
+			this.board[cell] = 0;
 		}
-		return (copyBoard);
 	}
 	
+	/**
+	 * Gets the total score of a prediction, its own score if it is a move of the player,
+	 * plus the highest total score of the predictions following it
+	 * 
+	 * @param level The level of the prediction
+	 * @param index The index of the prediction in its level
+	 * @return The total score
+	 */
+	private double getTotal(int level, int index) {
+		int node = this.offsets[level] + index;
+		double total = (this.levelValue(level) == this.playerNumber) ? this.scores[node] : 0;
+		
+		double highest = 0;
+		for (int i = 0; i < this.counts[node]; i++) {
+			double next = this.getTotal(level + 1, (index * this.minmaxAmount) + i);
+			if (next > highest) {
+				highest = next;
+			}
+		}
+		return (total + highest);
+	}
 	
 	/**
-	 * Returns a list of minimax moves 
+	 * Finds a move among the predictions following a prediction
 	 * 
-	 * @param minimax Current list of moves
-	 * @param game
-	 * @param amount
-	 * @param maxDepth
-	 * @param currentDepth
-	 * @param moveBoard
-	 * @param playerValue
-	 * @return
+	 * @param level The level of the prediction
+	 * @param index The index of the prediction in its level
+	 * @param cell The cell index of the move
+	 * @return The index of the move in the next level, or -1 if it was not predicted
 	 */
-	private List<Play> bestMoves = new ArrayList<Play>();
-	
-	
-	private List<Prediction> getMinimax(List<Prediction> minimax, Gomoku game, int amount, int maxDepth, int currentDepth, int[][] moveBoard, int playerValue) {
-//		Prediction finalMove = new Prediction(new Play(0, -1, -1));
-		List<int[][]> updatedBoard = new ArrayList<int[][]>();
-		//System.out.println("Minimax");
-		int i = 0;
-		List<Play> copyMoves = new ArrayList<Play>(this.bestMoves);
-		for (Play move : copyMoves) {
-			//System.out.println("Inside loop");
-			minimax.add(new Prediction(move, playerValues[playerValue % 2]));
-			updatedBoard.add(this.copyMoveBoard(moveBoard));
-			updatedBoard.get(i)[minimax.get(i).move.x][minimax.get(i).move.y] = playerValues[playerValue % 2];
-			//System.out.println("Depth : " + currentDepth + " Inserting Piece of X [" + minimax.get(i).move.x + "] Y [" + minimax.get(i).move.y + "] Score - " + minimax.get(i).move.score);
-			if (++i >= amount) {
-				currentDepth++;
-				for (int j = 0; j < amount && currentDepth < maxDepth; j++) {
-					//System.out.println("Passing into scanBoard X " + minimax.get(j).move.x + " Y " + minimax.get(j).move.y);
-					this.scanBoard(game, updatedBoard.get(j), playerValues[playerValue % 2]);
-					this.getMinimax(minimax.get(j).nextPlay, game, amount, maxDepth, currentDepth, updatedBoard.get(j), playerValue++);
-				}
-				break; 
+	private int findPrediction(int level, int index, int cell) {
+		int first = this.offsets[level + 1] + (index * this.minmaxAmount);
+		for (int i = 0; i < this.counts[this.offsets[level] + index]; i++) {
+			if (this.cells[first + i] == cell) {
+				return ((index * this.minmaxAmount) + i);
 			}
 		}
-		return (minimax);
+		return (-1);
 	}
-
+	
+	/**
+	 * Keeps the predictions that follow the moves played since the last turn, if they were all predicted,
+	 * by moving them up the tree in place.
+	 * 
+	 * If they were not, the tree is cleared.
+	 */
+	private void keepPredictions() {
+		int index = 0;
+		if (this.predicted && (this.playedCount == this.played.length)) {
+			for (int level = 0; (level < this.played.length) && (index >= 0); level++) {
+				index = this.findPrediction(level, index, this.played[level]);
+			}
+		}
+		else {
+			index = -1;
+		}
+		
+		if ((index < 0) || (this.counts[this.offsets[this.played.length] + index] == 0)) {
+			this.counts[0] = 0;
+			return;
+		}
+		
+		// The predictions following the kept one are contiguous in every level, and are only ever moved down
+		int width = 1;
+		for (int level = this.played.length; level <= this.plies; level++) {
+			int from = this.offsets[level] + (index * width);
+			int to = this.offsets[level - this.played.length];
+			System.arraycopy(this.cells, from, this.cells, to, width);
+			System.arraycopy(this.scores, from, this.scores, to, width);
+			System.arraycopy(this.counts, from, this.counts, to, width);
+			width *= this.minmaxAmount;
+		}
+	}
+	
 	/**
 	 * Calculates the weight and score for heuristics
 	 * Captures weight (1^possible captures / 2)
@@ -290,150 +336,51 @@ public class Arta implements PlayerController, AIController {
 	 * @return
 	 */
 	private double calcValue(Gomoku game, int x, int y, int value) {
-		return (Math.pow(CAPTURE, game.countCaptures(x, y, this.playerNumber)))
+		return (Math.pow(this.weights.get(Weight.ARTA_CAPTURE), game.countCaptures(x, y, this.playerNumber)))
 //				- this.captureThreat(game, x, y, value)
-				+ (Math.pow(2.5, this.enemyChain(game, x, y, value)))
-				- (game.isInDanger(x, y, value) ? 0 : WILLBECAPTURE )
+				+ (Math.pow(this.weights.get(Weight.ARTA_ADJACENT), this.enemyChain(game, x, y, value)))
+				- (game.isInDanger(x, y, value) ? 0 : this.weights.get(Weight.ARTA_WILL_BE_CAPTURED) )
 				+ this.checkSurrounding(game, x, y, value);
 	}
 	
 	
 	/**
-	 * Max length to check for double three is 4
+	 * Checks the board being scanned for a double three, see {@link ThreePatterns},
+	 * which the rules allow when the move captures
 	 * @param x
 	 * @param y
-	 * @param moveBoard
 	 * @param value
 	 * @return
 	 */
-	// AABXPOOXB
-	// ABXOPOXBA
-	// BXOOPXBAA
-	
-	// AAAXPXOOX
-	// AXOXPOXAA
-	// XOXOPXAAA
-	
-	// AAAXPOXOX
-	// AAXOPXOXA
-	// XOOXPXAAA
-	// B = block or free
-	// A = any piece
-	// O = same value
-	// P = piece places
-	
-	private static final Set<String> DOUBLETHREE_PERMUTATIONS;
-	private static final String[] BASE_TWO = {
-		"AABXPOOXB", "ABXOPOXBA", "BXOOPXBAA",
-		"AABXPOOXX", "ABXOPOXXA", "BXOOPXXAA",
-		"AAXXPOOXB", "AXXOPOXBA", "XXOOPXBAA",
-		"AAXXPOOXX", "AXXOPOXXA", "XXOOPXXAA",
-	};
-	private static final String[] BASE_THREE = {
-		"AAAXPXOOX", "AXOXPOXAA", "XOXOPXAAA",
-		"AAAXPOXOX", "AAXOPXOXA", "XOOXPXAAA"
-	};
-	
-	static {
-		HashSet<String> set = new LinkedHashSet<String>();
-		char[] values = { 'B', 'O', 'X' };
-		int[] position = { 0, 0 };
-		char[] hash = new char[9];
-		
-		for (int i = 0; i < BASE_TWO.length;) {
-			int count = 0;
-			for (int x = 0; x < 9; x++) {
-				char c = BASE_TWO[i].charAt(x);
-				if (c == 'A') {
-					hash[x] = values[position[count++]];
-				}
-				else {
-					hash[x] = c;
-				}
-			}
-			
-			if (++position[0] > 2) {
-				++position[1];
-				position[0] = 0;
-			}
-			if (position[1] > 2) {
-				position[1] = 0;
-				position[0] = 0;
-				i++;
-			}
-			set.add(new String(hash));
-		}
-		
-		int[] pos = { 0, 0, 0 };
-		for (int i = 0; i < BASE_THREE.length;) {
-			int count = 0;
-			for (int x = 0; x < 9; x++) {
-				char c = BASE_THREE[i].charAt(x);
-				if (c == 'A') {
-					hash[x] = values[pos[count++]];
-				}
-				else {
-					hash[x] = c;
-				}
-			}
-			
-			if (++pos[0] > 2) {
-				++pos[1];
-				pos[0] = 0;
-			}
-			if (pos[1] > 2) {
-				++pos[2];
-				pos[1] = 0;
-			}
-			if (pos[2] > 2) {
-				pos[2] = 0;
-				pos[1] = 0;
-				pos[0] = 0;
-				i++;
-			}
-			set.add(new String(hash));
-		}
-		
-		DOUBLETHREE_PERMUTATIONS = Collections.unmodifiableSet(set);
+	private boolean safeFromDoubleThrees(int x, int y, int value) {
+		return (!ThreePatterns.createsDoubleThree(this.board, x, y, value) || this.capturesOnBoard(x, y, value));
 	}
 	
-	// BNSAKJFDBASKJD.contains("Sstring");
-	
-	private boolean safeFromDoubleThrees(int x, int y, int[][] moveBoard, int value) {
-		int totalThrees = 0;
-		
-		for (Alignment align : Alignment.values()) {
-			char[] position = new char[9];
-			int currentPosition = 4;
-			position[currentPosition] = 'P';
-			for (int i = 1; i <  4; i++) {
-				if ((x - (align.dx * i) >= 0) && (y - (align.dy * i) >= 0) && (x + (align.dx * i) < 19) && (y + (align.dy * i) < 19) && 
-						(x + (align.dx * i) >= 0) && (y + (align.dy * i) >= 0) && (x - (align.dx * i) < 19) && (y - (align.dy * i) < 19)){
-					if (moveBoard[x - (align.dx * i)][y - (align.dy * i)] == value) {
-						position[currentPosition - i] = 'O';
-					}
-					else if(moveBoard[x - (align.dx * i)][y - (align.dy * i)] > 0 || moveBoard[x - (align.dx * i)][y - (align.dy * i)] == -1) {
-						position[currentPosition - i] = 'B';
-					}
-					else {
-						position[currentPosition - i] = 'X';
-					}
-					
-					if (moveBoard[x + (align.dx * i)][y + (align.dy * i)] == value) {
-						position[currentPosition + i] = 'O';
-					}
-					else if(moveBoard[x + (align.dx * i)][y + (align.dy * i)] > 0 || moveBoard[x + (align.dx * i)][y + (align.dy * i)] == -1) {
-						position[currentPosition + i] = 'B';
-					}
-					else {
-						position[currentPosition + i] = 'X';
-					}
+	/**
+	 * Checks if a move would capture on the board being scanned
+	 * 
+	 * @param x The x coordinate of the move
+	 * @param y The y coordinate of the move
+	 * @param value The value of the player making the move
+	 * @return Whether or not the move captures two tokens in any direction
+	 */
+	private boolean capturesOnBoard(int x, int y, int value) {
+		int enemy = (value % Gomoku.PLAYER_COUNT) + 1;
+		for (Alignment align : ALIGNMENTS) {
+			for (int sign = -1; sign <= 1; sign += 2) {
+				int dx = align.dx * sign;
+				int dy = align.dy * sign;
+				int ex = x + (dx * 3);
+				int ey = y + (dy * 3);
+				if ((ex < 0) || (ex >= Gomoku.BOARD_LENGTH) || (ey < 0) || (ey >= Gomoku.BOARD_LENGTH)) {
+					continue;
+				}
+				if ((this.tokenAt(x + dx, y + dy) == enemy) && (this.tokenAt(x + (dx * 2), y + (dy * 2)) == enemy) && (this.tokenAt(ex, ey) == value)) {
+					return (true);
 				}
 			}
-
-			totalThrees += 1;
 		}
-		return (totalThrees > 1);
+		return (false);
 	}
 	
 	// value = 0, 0 % 2 = 0, player number
@@ -444,23 +391,23 @@ public class Arta implements PlayerController, AIController {
 	// diagp (x - 2 & y - 2, x + 1 & y + 1) (x - 1 & y - 1, x + 2 & y + 2) 
 	// diagn (x - 2 & y + 2, x + 1, y - 1) (x - 1 & y + 1, x + 2, y - 2)
 	
-	private boolean safeFromCapture(int x, int y, int[][] moveBoard, int value) {
-		for (Alignment align : Alignment.values()) {
+	private boolean safeFromCapture(int x, int y, int value) {
+		for (Alignment align : ALIGNMENTS) {
 			if (x - (align.dx * 2) >= 0 && y - (align.dy) >= 0 && x + (align.dx) < 19 && y + (align.dy * 2) < 19 && x - (align.dx) > 0 &&
 					x + (align.dx * 2) >= 0 && y + (align.dy) >= 0 && x - (align.dx) < 19 && y - (align.dy * 2) < 19 && x + (align.dx) > 0 &&
 					y + (align.dy * 2) >= 0) {
-				if (moveBoard[x - (align.dx * 2)][y - (align.dy)] == this.playerValues[(value + 1) % 2] &&
-					moveBoard[x + (align.dx)][y + (align.dy * 2)] == this.playerValues[(value + 1) % 2] &&
-					moveBoard[x - (align.dx)][y - (align.dy)] == this.playerValues[(value + 1) % 2]) {
+				if (this.tokenAt(x - (align.dx * 2), y - (align.dy)) == this.playerValues[(value + 1) % 2] &&
+					this.tokenAt(x + (align.dx), y + (align.dy * 2)) == this.playerValues[(value + 1) % 2] &&
+					this.tokenAt(x - (align.dx), y - (align.dy)) == this.playerValues[(value + 1) % 2]) {
 						return (false);
 				}
 			}
 			else if (x - (align.dx) >= 0 && y - (align.dy * 2) >= 0 && x + (align.dx * 2) < 19 && y + (align.dy) < 19 && x + (align.dx * 2) > 0 &&
 					x + (align.dx) >= 0 && y + (align.dy * 2) >= 0 && x - (align.dx * 2) < 19 && y - (align.dy) < 19 && x - (align.dx * 2) > 0 
 					&& y + (align.dy * 2) < 19 && y - (align.dy * 2) < 19) {
-				if (moveBoard[x - (align.dx)][y - (align.dy * 2)] == this.playerValues[(value + 1) % 2] &&
-					moveBoard[x + (align.dx * 2)][y + (align.dy)] == this.playerValues[(value + 1) % 2] &&
-					moveBoard[x + (align.dx)][y + (align.dy)] == this.playerValues[(value + 1) % 2]) {
+				if (this.tokenAt(x - (align.dx), y - (align.dy * 2)) == this.playerValues[(value + 1) % 2] &&
+					this.tokenAt(x + (align.dx * 2), y + (align.dy)) == this.playerValues[(value + 1) % 2] &&
+					this.tokenAt(x + (align.dx), y + (align.dy)) == this.playerValues[(value + 1) % 2]) {
 						return (false);
 				}
 			}
@@ -468,55 +415,87 @@ public class Arta implements PlayerController, AIController {
 		return (true);
 	}
 	
+	/**
+	 * Gets a token of the board being scanned
+	 * 
+	 * @param x The x coordinate
+	 * @param y The y coordinate
+	 * @return The value of the token
+	 */
+	private int tokenAt(int x, int y) {
+		return (this.board[(y * Gomoku.BOARD_LENGTH) + x]);
+	}
+	
 	/**
 	 * Will check to see if the piece is free, and if it is placing into a capture or a double three
 	 * @param x
 	 * @param y
-	 * @param moveBoard
+	 * @param value
 	 * @return
 	 */
-	private boolean isIllegaMove(int x, int y, int[][] moveBoard, int value) {
-		return (moveBoard[x][y] == 0 && this.safeFromCapture(x, y, moveBoard, value) && this.safeFromDoubleThrees(x, y, moveBoard, value));
+	private boolean isIllegaMove(int x, int y, int value) {
+		return (this.tokenAt(x, y) == 0 && this.safeFromCapture(x, y, value) && this.safeFromDoubleThrees(x, y, value));
 	}
 	
 	/**
-	 * This will scan the entire board of the copied state moveBoard and update a scoreboard to it.
-	 * It will also store it into a list that will be sorted and returned
+	 * Gets the score of a move, computing it only once per turn
+	 * 
+	 * @param game The gomoku game to score the move on
+	 * @param cell The cell index of the move
+	 * @param value The value of the player
+	 * @return The score of calcValue
 	 */
-	private List<Play> scanBoard(Gomoku game, int[][] moveBoard, int value) {
-		this.bestMoves.clear();
-		for (int x = 0, y = 0; x < Gomoku.BOARD_LENGTH && y < Gomoku.BOARD_LENGTH; x++) {
-			if (isIllegaMove(x, y, moveBoard, value)) {
-				////System.out.println("Legal move " + x + " " + y);
-				this.scoreBoard[x][y] = calcValue(game, x, y, value);
-				this.bestMoves.add(new Play(this.scoreBoard[x][y], x, y));
+	private double getValue(Gomoku game, int cell, int value) {
+		if (this.stamps[value - 1][cell] != this.stamp) {
+			this.stamps[value - 1][cell] = this.stamp;
+			this.values[value - 1][cell] = this.calcValue(game, cell % Gomoku.BOARD_LENGTH, cell / Gomoku.BOARD_LENGTH, value);
+		}
+		return (this.values[value - 1][cell]);
+	}
+	
+	/**
+	 * This will scan the entire board being predicted for the legal moves with the highest scores.
+	 * The best moves are kept in bestCells and bestScores, highest score first, earlier cells first on ties.
+	 * 
+	 * @return The number of best moves, at most the amount of predictions
+	 */
+	private int scanBoard(Gomoku game, int value) {
+		int count = 0;
+		for (int cell = 0; cell < CELL_COUNT; cell++) {
+			int x = cell % Gomoku.BOARD_LENGTH;
+			int y = cell / Gomoku.BOARD_LENGTH;
+			if (!game.isCandidate(x, y) || !isIllegaMove(x, y, value)) {
+				continue;
+			}
+			
+			double score = this.getValue(game, cell, value);
+			int i = count;
+			while ((i > 0) && (Double.compare(this.bestScores[i - 1], score) < 0)) {
+				i--;
 			}
-		//	else { //System.out.println("AASDASDSDSDSDASDASDASD"); }
-			if (x == 18) {
-				x = -1;
-				y++;
+			if (i < this.minmaxAmount) {
+				count = Math.min(count + 1, this.minmaxAmount);
+				for (int j = count - 1; j > i; j--) {
+					this.bestCells[j] = this.bestCells[j - 1];
+					this.bestScores[j] = this.bestScores[j - 1];
+				}
+				this.bestCells[i] = cell;
+				this.bestScores[i] = score;
 			}
 		}
-		Collections.sort(this.bestMoves);
-		return (this.bestMoves);
+		return (count);
 	}
 	
 	
 	/**
-	 * Creates a copy of the current game state into gameBoard
+	 * Copies the current game state into the board to predict on
 	 * 
 	 * @param game The gomoku game to copy the state from
 	 */
-	public int[][] copyGameState(Gomoku game) {
-		int[][] copyBoard = new int[Gomoku.BOARD_LENGTH][Gomoku.BOARD_LENGTH];
-		for (int x = 0, y = 0; x < Gomoku.BOARD_LENGTH && y < Gomoku.BOARD_LENGTH; x++) {
-			copyBoard[x][y] = game.getToken(x, y);
-			if (x == 18) {
-				x = -1;
-				y++;
-			}
+	private void copyGameState(Gomoku game) {
+		for (int cell = 0; cell < CELL_COUNT; cell++) {
+			this.board[cell] = game.getToken(cell % Gomoku.BOARD_LENGTH, cell / Gomoku.BOARD_LENGTH);
 		}
-		return (copyBoard);
 	}
 	
 	@Override
@@ -526,19 +505,28 @@ public class Arta implements PlayerController, AIController {
 
 	@Override
 	public void report(Gomoku game, String message) {
-		//System.out.println(message);
 		System.err.println("[Arta] Tuturuu~");
 	}
 
 	@Override
 	public void informChange(Gomoku game, int x, int y, int value) {	
+		if (value == 0) {
+			// The kept predictions never expected a capture
+			this.predicted = false;
+		}
+		else {
+			if (this.playedCount < this.played.length) {
+				this.played[this.playedCount] = (y * Gomoku.BOARD_LENGTH) + x;
+			}
+			this.playedCount++;
+		}
 	}
 
 	@Override
 	public void informWinner(Gomoku game, int value) {
+		this.predicted = false;
 	}
 
-//	private Random rng = new Random();
 	@Override
 	public boolean getMove(Gomoku game, int value, long key) {
 		long startTime = System.nanoTime();
@@ -546,53 +534,42 @@ public class Arta implements PlayerController, AIController {
 			game.submitMove(this.randomize.nextInt(Gomoku.BOARD_LENGTH), this.randomize.nextInt(Gomoku.BOARD_LENGTH), key);
 		}
 		else {
-		//	//System.out.println("Test 1");
-			this.scanBoard(game, this.copyGameState(game), playerNumber);
-			List<Prediction> moveToPlay = new ArrayList<Prediction>();
-			moveToPlay = this.getMinimax(new ArrayList<Prediction>(), game,
-					this.minmaxAmount, this.minmaxDepth * Gomoku.PLAYER_COUNT, 0,
-					this.copyGameState(game), 0);
-//			moveToPlay = this.getMinimax(new ArrayList<Prediction>(), game,
-//					this.minmaxAmount, this.minmaxDepth * Gomoku.PLAYER_COUNT, 0,
-//					new int[Gomoku.BOARD_LENGTH][Gomoku.BOARD_LENGTH], 0);
-		//	//System.out.println("Test 2");
-			List<Play> sortPlayList = new ArrayList<Play>();
-			for (Prediction sortItem : moveToPlay) {
-				////System.out.println("Sorting");
-				sortItem.getTotal();
-				sortPlayList.add(new Play(sortItem.totalScore, sortItem.move.x, sortItem.move.y));
+			// Continue from the predictions the game followed, only the new turns have to be predicted
+			this.stamp++;
+			this.copyGameState(game);
+			this.keepPredictions();
+			this.predict(game, 0, 0);
+			this.predicted = true;
+			
+			// Sort the moves of the current position by total score, they are few so insertion sort does
+			int count = this.counts[0];
+			for (int j = 0; j < count; j++) {
+				double total = this.getTotal(1, j);
+				int i = j;
+				while ((i > 0) && (Double.compare(this.rootTotals[i - 1], total) < 0)) {
+					this.rootCells[i] = this.rootCells[i - 1];
+					this.rootTotals[i] = this.rootTotals[i - 1];
+					i--;
+				}
+				this.rootCells[i] = this.cells[this.offsets[1] + j];
+				this.rootTotals[i] = total;
 			}
-		//	//System.out.println("Test 3");
-			Collections.sort(sortPlayList);
-			for (Play playMove : sortPlayList) {
-				////System.out.println("\nCHECKING VALUE " + key + " KEY " + playMove.score + " X: " + playMove.x + " Y: " + playMove.y);
-				if (game.getToken(playMove.x, playMove.y) == 0 &&
-						!game.createsDoubleThree(playMove.x, playMove.y, value) &&
-					!game.isCaptured(playMove.x, playMove.y, value))
+			
+			for (int i = 0; i < count; i++) {
+				int x = this.rootCells[i] % Gomoku.BOARD_LENGTH;
+				int y = this.rootCells[i] / Gomoku.BOARD_LENGTH;
+				if (game.getToken(x, y) == 0 &&
+						!game.createsDoubleThree(x, y, value) &&
+					!game.isCaptured(x, y, value))
 				{
-					////System.out.println("\nMove Made Score: " + key + " KEY " + playMove.score + " X: " + playMove.x + " Y: " + playMove.y);
-					game.submitMove(playMove.x, playMove.y, key);
+					game.submitMove(x, y, key);
 					this.timeTaken = (double)(System.nanoTime() - startTime) / NANO;
 					break;
 				}
 			}
-	//		//System.out.println("Test 4");
 		}
-	//	//System.out.println("Test");
+		this.playedCount = 0;
 		return (true);
-//		for (String a : DOUBLETHREE_PERMUTATIONS) {
-//			//System.out.println(a);
-//		}
-//		while (true) {
-//			int x = rng.nextInt(Gomoku.BOARD_LENGTH);
-//			int y = rng.nextInt(Gomoku.BOARD_LENGTH);
-//			
-//			if (game.getToken(x, y) == 0) {
-//				game.submitMove(x, y, key);
-//				break;
-//			}
-//		}
-//		return (true);
 	}
 	
 	@Override
@@ -607,14 +584,27 @@ public class Arta implements PlayerController, AIController {
 		}
 		this.playerValues[0] = playerNumber;
 		this.playerValues[1] = enemyNumber;
+		this.predicted = false;
+		this.playedCount = 0;
 	}
 	
 	@Override
 	public void gameEnd(Gomoku game) {
+		this.predicted = false;
 	}
 
 	@Override
 	public double getTimeElapsed() {
 		return (this.timeTaken);
 	}
+	
+	@Override
+	public Weights getWeights() {
+		return (this.weights);
+	}
+	
+	@Override
+	public void setWeights(Weights weights) {
+		this.weights = weights;
+	}
 }
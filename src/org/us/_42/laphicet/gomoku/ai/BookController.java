@@ -0,0 +1,130 @@
+package org.us._42.laphicet.gomoku.ai;
+
+import org.us._42.laphicet.gomoku.Gomoku;
+import org.us._42.laphicet.gomoku.PlayerController;
+
+/**
+ * Wraps a player to play the moves of an opening book without searching.
+ * The wrapped player is only asked for a move once the game leaves the book or the opening.
+ * It is still informed of every change, so it keeps track of the game as usual.
+ */
+public class BookController implements PlayerController, AIController {
+	private PlayerController player;
+	private OpeningBook book;
+	private int plies;
+	
+	private boolean booked = false;
+	private double elapsed = 0.0;
+	
+	/**
+	 * Creates a new player that plays from an opening book.
+	 * 
+	 * @param player The player to ask for moves that are not in the book.
+	 * @param book The opening book.
+	 * @param plies The number of turns from the start of the game to use the book for.
+	 */
+	public BookController(PlayerController player, OpeningBook book, int plies) {
+		this.player = player;
+		this.book = book;
+		this.plies = plies;
+	}
+	
+	/**
+	 * Creates a new player that plays from an opening book for as long as the game stays in it.
+	 * 
+	 * @param player The player to ask for moves that are not in the book.
+	 * @param book The opening book.
+	 */
+	public BookController(PlayerController player, OpeningBook book) {
+		this(player, book, Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * Gets the wrapped player.
+	 * 
+	 * @return The player asked for moves that are not in the book.
+	 */
+	public PlayerController getPlayer() {
+		return (this.player);
+	}
+	
+	@Override
+	public String name(Gomoku game, int value) {
+		return (this.player.name(game, value));
+	}
+	
+	@Override
+	public void report(Gomoku game, String message) {
+		this.player.report(game, message);
+	}
+	
+	@Override
+	public void informChange(Gomoku game, int x, int y, int value) {
+		this.player.informChange(game, x, y, value);
+	}
+	
+	@Override
+	public void informWinner(Gomoku game, int value) {
+		this.player.informWinner(game, value);
+	}
+	
+	@Override
+	public boolean getMove(Gomoku game, int value, long key) {
+		if (game.getTurn() < this.plies) {
+			long start = System.nanoTime();
+			int move = this.book.getMove(game, value);
+			if (move != OpeningBook.NO_MOVE) {
+				game.submitMove(move % Gomoku.BOARD_LENGTH, move / Gomoku.BOARD_LENGTH, key);
+				this.elapsed = (double)(System.nanoTime() - start) / 1000000000.0;
+				this.booked = true;
+				return (true);
+			}
+		}
+		
+		this.booked = false;
+		return (this.player.getMove(game, value, key));
+	}
+	
+	@Override
+	public void gameStart(Gomoku game, int value) {
+		this.booked = false;
+		this.player.gameStart(game, value);
+	}
+	
+	@Override
+	public void gameEnd(Gomoku game) {
+		this.player.gameEnd(game);
+	}
+	
+	@Override
+	public double getTimeElapsed() {
+		if (this.booked || !(this.player instanceof AIController)) {
+			return (this.elapsed);
+		}
+		return (((AIController)this.player).getTimeElapsed());
+	}
+	
+	@Override
+	public int getDepthReached() {
+		if (this.booked || !(this.player instanceof AIController)) {
+			return (0);
+		}
+		return (((AIController)this.player).getDepthReached());
+	}
+	
+	@Override
+	public long getNodeCount() {
+		if (this.booked || !(this.player instanceof AIController)) {
+			return (0);
+		}
+		return (((AIController)this.player).getNodeCount());
+	}
+	
+	@Override
+	public int[] getPrincipalVariation() {
+		if (this.booked || !(this.player instanceof AIController)) {
+			return (new int[0]);
+		}
+		return (((AIController)this.player).getPrincipalVariation());
+	}
+}
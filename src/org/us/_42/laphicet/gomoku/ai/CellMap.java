@@ -0,0 +1,134 @@
+package org.us._42.laphicet.gomoku.ai;
+
+import org.us._42.laphicet.gomoku.Gomoku;
+
+/**
+ * A set of cells of the board, each with an int, such as the priority of a move.
+ * 
+ * Cells are indices, (y * BOARD_LENGTH) + x. Which cells are in the set is kept in a bitset,
+ * and their values in a dense array by cell, so nothing is boxed or allocated once the map exists.
+ * Cells are iterated in order with {@link CellMap#next(int)}.
+ */
+public class CellMap {
+	public static final int CELL_COUNT = Gomoku.BOARD_LENGTH * Gomoku.BOARD_LENGTH;
+	
+	private long[] bits = new long[(CELL_COUNT + 63) >>> 6];
+	private int[] values = new int[CELL_COUNT];
+	private int size = 0;
+	
+	/**
+	 * Checks if a cell is in the set.
+	 * 
+	 * @param cell The cell index.
+	 * @return Whether or not the cell is in the set.
+	 */
+	public boolean contains(int cell) {
+		return ((this.bits[cell >>> 6] & (1L << cell)) != 0);
+	}
+	
+	/**
+	 * Gets the value of a cell.
+	 * 
+	 * @param cell The cell index.
+	 * @return The value of the cell, or 0 if it is not in the set.
+	 */
+	public int get(int cell) {
+		return (this.contains(cell) ? this.values[cell] : 0);
+	}
+	
+	/**
+	 * Adds a cell to the set, or changes its value if it already is.
+	 * 
+	 * @param cell The cell index.
+	 * @param value The value of the cell.
+	 */
+	public void put(int cell, int value) {
+		if (!(this.contains(cell))) {
+			this.bits[cell >>> 6] |= 1L << cell;
+			this.size++;
+		}
+		this.values[cell] = value;
+	}
+	
+	/**
+	 * Adds a cell to the set, with a value of 0 if it was not in the set yet.
+	 * 
+	 * @param cell The cell index.
+	 */
+	public void add(int cell) {
+		if (!(this.contains(cell))) {
+			this.put(cell, 0);
+		}
+	}
+	
+	/**
+	 * Removes a cell from the set.
+	 * 
+	 * @param cell The cell index.
+	 */
+	public void remove(int cell) {
+		if (this.contains(cell)) {
+			this.bits[cell >>> 6] &= ~(1L << cell);
+			this.size--;
+		}
+	}
+	
+	/**
+	 * Gets the number of cells in the set.
+	 * 
+	 * @return The number of cells.
+	 */
+	public int size() {
+		return (this.size);
+	}
+	
+	/**
+	 * Removes every cell from the set.
+	 */
+	public void clear() {
+		for (int i = 0; i < this.bits.length; i++) {
+			this.bits[i] = 0;
+		}
+		this.size = 0;
+	}
+	
+	/**
+	 * Finds the first cell of the set from a cell on, to iterate over the set in order:
+	 * for (int cell = map.next(0); cell >= 0; cell = map.next(cell + 1))
+	 * 
+	 * @param cell The cell index to start from.
+	 * @return The first cell index in the set that is at least the given one, or -1 if there is none.
+	 */
+	public int next(int cell) {
+		int word = cell >>> 6;
+		if (word >= this.bits.length) {
+			return (-1);
+		}
+		
+		long bits = this.bits[word] & (-1L << cell);
+		while (bits == 0) {
+			if (++word >= this.bits.length) {
+				return (-1);
+			}
+			bits = this.bits[word];
+		}
+		return ((word << 6) + Long.numberOfTrailingZeros(bits));
+	}
+	
+	/**
+	 * Copies the cells and values of the set into arrays, in cell order.
+	 * 
+	 * @param cells The array to fill with the cell indices.
+	 * @param values The array to fill with the values, by index in the cells.
+	 * @return The number of cells copied.
+	 */
+	public int toArrays(int[] cells, int[] values) {
+		int count = 0;
+		for (int cell = this.next(0); cell >= 0; cell = this.next(cell + 1)) {
+			cells[count] = cell;
+			values[count] = this.values[cell];
+			count++;
+		}
+		return (count);
+	}
+}
@@ -0,0 +1,63 @@
+package org.us._42.laphicet.gomoku.ai;
+
+import org.us._42.laphicet.gomoku.Gomoku;
+
+/**
+ * A Gomoku AI using principal variation search, built on {@link Ruta}.
+ * 
+ * Once the first move of a position is searched, every other move only has to be proven worse,
+ * which a search with a null window does far cheaper than a full one. Only the moves that turn
+ * out better are searched again with the full window.
+ * Every iteration of the deepening starts with an aspiration window around the score of the
+ * previous iteration, and only widens it when the score falls outside.
+ */
+public class Egle extends Ruta {
+	/**
+	 * Creates a new instance of the Egle Gomoku AI.
+	 * 
+	 * @param depth The maximum number of turns to search before making a decision.
+	 * @param width The number of moves to consider at each step, 0 for all of them.
+	 * @param megabytes The size of the transposition table.
+	 * @param seconds The time budget for each move, 0 to always search to the full depth.
+	 */
+	public Egle(int depth, int width, int megabytes, double seconds) {
+		super(depth, width, megabytes, seconds, true);
+	}
+	
+	/**
+	 * Creates a new instance of the Egle Gomoku AI that searches as deep as a time budget allows.
+	 * 
+	 * @param seconds The time budget for each move.
+	 * @param width The number of moves to consider at each step, 0 for all of them.
+	 */
+	public Egle(double seconds, int width) {
+		this(MAX_PLY - 1, width, 32, seconds);
+	}
+	
+	/**
+	 * Creates a new instance of the Egle Gomoku AI.
+	 * 
+	 * @param depth How many turns to search before making a decision.
+	 * @param width The number of moves to consider at each step, 0 for all of them.
+	 */
+	public Egle(int depth, int width) {
+		this(depth, width, 32, 0.0);
+	}
+	
+	/**
+	 * Creates a new instance of the Egle Gomoku AI.
+	 */
+	public Egle() {
+		this(6, 12);
+	}
+	
+	@Override
+	public String name(Gomoku game, int value) {
+		return ("Egle");
+	}
+	
+	@Override
+	public void report(Gomoku game, String message) {
+		System.err.println("[Egle] " + message);
+	}
+}
@@ -0,0 +1,78 @@
+package org.us._42.laphicet.gomoku.ai;
+
+import org.us._42.laphicet.gomoku.Gomoku;
+
+/**
+ * Static evaluation of Gomoku positions for searching AIs.
+ * 
+ * Every run of ADJACENT_TO_WIN cells along a line of the board is a window.
+ * A window only holding tokens of one player is worth more the more tokens it holds,
+ * so open rows, split rows and closed rows are all weighed by how close they are to a win.
+ * Captures are weighed by how close they bring a player to a win by capture,
+ * and every capture a player threatens is worth half of the next capture they would make.
+ * 
+ * The windows and capture threats are counted incrementally by the engine, see
+ * {@link Gomoku#getOpenWindows(int, int)} and {@link Gomoku#getCaptureThreats(int)},
+ * so evaluating a position takes constant time.
+ */
+public class Evaluator {
+	public static final int WIN = 1000000;
+	
+	private static final int[] WINDOW_SCORES = { 0, 1, 8, 64, 512, 100000 };
+	private static final int CAPTURE_SCORE = 40;
+	
+	/**
+	 * Scores the number of captures a player has made.
+	 * 
+	 * @param captures The number of captures.
+	 * @return The score of the captures, growing as the player nears a win by capture.
+	 */
+	private static int evaluateCaptures(int captures) {
+		return (CAPTURE_SCORE * captures * (captures + 1));
+	}
+	
+	/**
+	 * Scores the captures a player threatens.
+	 * 
+	 * @param captures The number of captures the player has made.
+	 * @param threats The number of captures the player could make with a single move.
+	 * @return The score of the threats, half of what the next capture would add for each of them.
+	 */
+	private static int evaluateThreats(int captures, int threats) {
+		return (threats * (evaluateCaptures(captures + 1) - evaluateCaptures(captures)) / 2);
+	}
+	
+	/**
+	 * Evaluates a position from the point of view of a player.
+	 * 
+	 * @param game The Gomoku game controller.
+	 * @param value The value of the player the score is for.
+	 * @return The score of the position, positive if it favors the player.
+	 * Won and lost games score WIN and -WIN.
+	 */
+	public static int evaluate(Gomoku game, int value) {
+		int winner = game.getWinner();
+		if (winner != 0) {
+			return ((winner == value) ? WIN : -WIN);
+		}
+		
+		// The engine keeps the open windows and capture threats counted, so no line of the board has to be walked
+		int other = (value % Gomoku.PLAYER_COUNT) + 1;
+		int score = 0;
+		for (int tokens = 1; tokens <= Gomoku.ADJACENT_TO_WIN; tokens++) {
+			score += (game.getOpenWindows(value, tokens) - game.getOpenWindows(other, tokens)) * WINDOW_SCORES[tokens];
+		}
+		
+		for (int i = 1; i <= Gomoku.PLAYER_COUNT; i++) {
+			int captures = game.getCaptureCount(i);
+			int captureScore = evaluateCaptures(captures) + evaluateThreats(captures, game.getCaptureThreats(i));
+			if (i == value) {
+				score += captureScore;
+			}
+			else {
+				score -= captureScore;
+			}
+		}
+		return (score);
+	}
+}
@@ -1,19 +1,18 @@
 package org.us._42.laphicet.gomoku.ai;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.Set;
-import java.util.TreeSet;
-import java.util.stream.IntStream;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 import org.us._42.laphicet.gomoku.Gomoku;
 import org.us._42.laphicet.gomoku.Gomoku.Alignment;
 import org.us._42.laphicet.gomoku.PlayerController;
+import org.us._42.laphicet.gomoku.ai.Weights.Weight;
 
 
-public class Lydeka implements PlayerController, AIController {
+public class Lydeka implements PlayerController, AIController, Tunable {
 
 	/**
 	 * Used to hold the current score and its X Y coords
@@ -50,10 +49,10 @@ public class Lydeka implements PlayerController, AIController {
 			this.value = value;
 		}
 		
-		private double highestScore(List<Prediction> checkMove) {
+		private double highestScore(List<Prediction> checkMove, int playerNumber) {
 			double ret = 0;
 			for (Prediction possibleMoves : checkMove) {
-				possibleMoves.getTotal();
+				possibleMoves.getTotal(playerNumber);
 				if (possibleMoves.totalScore > ret) {
 					ret = possibleMoves.totalScore;
 				}
@@ -61,11 +60,16 @@ public class Lydeka implements PlayerController, AIController {
 			return (ret);
 		}
 		
-		private void getTotal() {
-			if (value == Lydeka.playerNumber) {
+		/**
+		 * Adds up the scores of the moves of a player along the best line of play.
+		 * 
+		 * @param playerNumber The value of the player the scores are counted for.
+		 */
+		private void getTotal(int playerNumber) {
+			if (value == playerNumber) {
 				this.totalScore += this.move.score;
 			}
-			this.totalScore += this.highestScore(this.nextPlay);
+			this.totalScore += this.highestScore(this.nextPlay, playerNumber);
 //			System.out.println("getTotal(); called, total score " + this.totalScore + " value is " + this.value);
 		}
 		
@@ -75,19 +79,12 @@ public class Lydeka implements PlayerController, AIController {
 		}
 	}
 	
-	private static int playerNumber;
+	private int playerNumber;
 	private int enemyNumber;
 	private int[] togglePlayer = new int[Gomoku.PLAYER_COUNT];
 
-	private double[][] scoreBoard = new double[Gomoku.BOARD_LENGTH][Gomoku.BOARD_LENGTH];
-	private List<Play> bestMoves = new ArrayList<Play>();
-	
 //	private List<Prediction> minimax = new ArrayList<Prediction>();
 	
-	private static final double PLAYERCHAIN = 2.0;
-	private static final double ENEMYCHAIN = 3.5;
-	private static final double CAPTURE = 2.5;
-	private static final double WILLBECAPTURE = 25.0;
 	private static final double NANO = 1000000000.0;
 	
 	private static final int NEGATIVE = 0;
@@ -97,6 +94,7 @@ public class Lydeka implements PlayerController, AIController {
 	private final int minmaxDepth;
 	
 	private double timeTaken;
+	private Weights weights = Weights.DEFAULT;
 //	private long lastKey;
 	
 	
@@ -150,22 +148,22 @@ public class Lydeka implements PlayerController, AIController {
 			if (game.getToken(x - chain.dx, y - chain.dy) == value) {
 				chainLength = game.getAdjacentTokenCount(x - chain.dx, y - chain.dy, chain);
 				blocked += checkIfBlocked(game, x - chain.dx, y - chain.dy, value, chainLength, chain, Lydeka.NEGATIVE);
-				tmp += Math.pow(PLAYERCHAIN, chainLength);
+				tmp += Math.pow(this.weights.get(Weight.LYDEKA_PLAYER_CHAIN), chainLength);
 			}
 			else if (game.getToken(x - chain.dx, y - chain.dy) > 0) {
 				chainLength = game.getAdjacentTokenCount(x - chain.dx, y - chain.dy, chain);
 				blocked += checkIfBlocked(game, x - chain.dx, y - chain.dy, value, chainLength, chain, Lydeka.NEGATIVE);
-				tmp += Math.pow(ENEMYCHAIN, chainLength);
+				tmp += Math.pow(this.weights.get(Weight.LYDEKA_ENEMY_CHAIN), chainLength);
 			}
 			if (game.getToken(x + chain.dx, y + chain.dy) == value) {
 				chainLength = game.getAdjacentTokenCount(x + chain.dx, y + chain.dy, chain);
 				blocked += checkIfBlocked(game, x + chain.dx, y + chain.dy, value, chainLength, chain, Lydeka.POSITIVE);
-				tmp += Math.pow(PLAYERCHAIN, chainLength);
+				tmp += Math.pow(this.weights.get(Weight.LYDEKA_PLAYER_CHAIN), chainLength);
 			}
 			else if (game.getToken(x + chain.dx, y + chain.dy) > 0) {
 				chainLength = game.getAdjacentTokenCount(x + chain.dx, y + chain.dy, chain);
 				blocked += checkIfBlocked(game, x + chain.dx, y + chain.dy, value, chainLength, chain, Lydeka.POSITIVE);
-				tmp += Math.pow(ENEMYCHAIN, chainLength);
+				tmp += Math.pow(this.weights.get(Weight.LYDEKA_ENEMY_CHAIN), chainLength);
 			}
 			tmp /= blocked;
 			if (tmp > score) {
@@ -187,46 +185,101 @@ public class Lydeka implements PlayerController, AIController {
 	 * @return
 	 */
 	private double calcValue(Gomoku game, int x, int y, int value) {
-		return (Math.pow(CAPTURE, game.countCaptures(x, y, Lydeka.playerNumber)))
+		return (Math.pow(this.weights.get(Weight.LYDEKA_CAPTURE), game.countCaptures(x, y, this.playerNumber)))
 //				- this.captureThreat(game, x, y, value)
-				- (game.isInDanger(x, y, value) ? 0 : WILLBECAPTURE )
+				- (game.isInDanger(x, y, value) ? 0 : this.weights.get(Weight.LYDEKA_WILL_BE_CAPTURED) )
 				+ this.checkSurrounding(game, x, y, value);
 	}
 	
 	/**
-	 * This will scan the entire board and fill it with a score. It'll than move all
-	 * the info into an TreeSet of objects where score is tied to its x and y position.
+	 * This will scan the entire board and give every cell a score. The scores are returned
+	 * as a new list of objects where score is tied to its x and y position, best first.
+	 * Nothing is shared between calls, so several branches can be scanned at once.
+	 * 
+	 * @param game The game being played.
+	 * @param moveBoard The predicted moves, their cells are scored with the value of their player.
+	 * @param value The value of the player to score the moves for.
+	 * @return The scored moves, sorted from best to worst.
 	 */
-	private void scanBoard(Gomoku game, double[][] moveBoard, int value) {
-		this.bestMoves.clear();
-//		System.out.println("Begin Score");
+	private List<Play> scanBoard(Gomoku game, double[][] moveBoard, int value) {
+		List<Play> bestMoves = new ArrayList<Play>(Gomoku.BOARD_LENGTH * Gomoku.BOARD_LENGTH);
 		for (int x = 0, y = 0; x < Gomoku.BOARD_LENGTH && y < Gomoku.BOARD_LENGTH; x++) {
+			double score;
 			if (moveBoard[x][y] != 0) {
-				System.out.println("MOVE BOARD " + x + " " + y);
-				this.scoreBoard[x][y] = moveBoard[x][y];
+				score = moveBoard[x][y];
 			}
-			else if (game.getToken(x, y) == 0 && !game.createsDoubleThree(x, y, value) && !game.isCaptured(x,  y,  value)) {
-//					System.out.println("APPROVED MOVE BOARD " + x + " " + y);
-					this.scoreBoard[x][y] =  calcValue(game, x, y, value);
+			else if (game.isCandidate(x, y) && !game.createsDoubleThree(x, y, value) && !game.isCaptured(x,  y,  value)) {
+					score = calcValue(game, x, y, value);
 			}
 			else {
-				this.scoreBoard[x][y] =  0;
+				score = 0;
 			}
-			this.bestMoves.add(new Play(this.scoreBoard[x][y], x, y));
-//			System.out.println("SCORE: " + this.scoreBoard[x][y] + " X: " + x + " Y: " + y);
+			bestMoves.add(new Play(score, x, y));
 			if (x == 18) {
 				x = -1;
 				y++;
 			}
 		}
-		Collections.sort(this.bestMoves);
-//		System.out.print("End Score");
+		Collections.sort(bestMoves);
+		return (bestMoves);
+	}
+	
+	/**
+	 * Copies the predicted moves of a branch, so every branch can place its own.
+	 * 
+	 * @param moveBoard The predicted moves to copy.
+	 * @return A new board with the same predicted moves.
+	 */
+	private static double[][] copyBoard(double[][] moveBoard) {
+		double[][] copy = new double[Gomoku.BOARD_LENGTH][];
+		for (int x = 0; x < Gomoku.BOARD_LENGTH; x++) {
+			copy[x] = moveBoard[x].clone();
+		}
+		return (copy);
+	}
+	
+	/**
+	 * Adds the best moves of a player to a list of predictions.
+	 * 
+	 * @param minimax Current list of moves
+	 * @param bestMoves The scored moves of the player, best first.
+	 * @param amount The number of moves to predict.
+	 * @param playerValue The number of moves predicted before these, decides the player.
+	 * @return The list of moves.
+	 */
+	private List<Prediction> addPredictions(List<Prediction> minimax, List<Play> bestMoves, int amount, int playerValue) {
+		for (Play move : bestMoves) {
+			if (minimax.size() >= amount) {
+				break;
+			}
+			minimax.add(new Prediction(move, this.togglePlayer[playerValue % 2]));
+		}
+		return (minimax);
+	}
+	
+	/**
+	 * Predicts the answers to a move, placing it on its own copy of the predicted moves.
+	 * 
+	 * @param prediction The move to answer.
+	 * @param game
+	 * @param amount
+	 * @param maxDepth
+	 * @param currentDepth The depth of the answers.
+	 * @param moveBoard The predicted moves leading to the move.
+	 * @param playerValue The number of moves predicted before the answers, decides the player.
+	 */
+	private void predict(Prediction prediction, Gomoku game, int amount, int maxDepth, int currentDepth, double[][] moveBoard, int playerValue) {
+		double[][] updatedBoard = Lydeka.copyBoard(moveBoard);
+		updatedBoard[prediction.move.x][prediction.move.y] = prediction.value;
+		List<Play> bestMoves = this.scanBoard(game, updatedBoard, this.togglePlayer[playerValue % 2]);
+		this.getMinimax(prediction.nextPlay, bestMoves, game, amount, maxDepth, currentDepth, updatedBoard, playerValue);
 	}
 	
 	/**
 	 * Returns a list of minimax moves 
 	 * 
 	 * @param minimax Current list of moves
+	 * @param bestMoves The scored moves of the player, best first.
 	 * @param game
 	 * @param amount
 	 * @param maxDepth
@@ -235,27 +288,45 @@ public class Lydeka implements PlayerController, AIController {
 	 * @param playerValue
 	 * @return
 	 */
-	private List<Prediction> getMinimax(List<Prediction> minimax, Gomoku game, int amount, int maxDepth, int currentDepth, double[][] moveBoard, int playerValue) {
-//		Prediction finalMove = new Prediction(new Play(0, -1, -1));
-		List<double[][]> updatedBoard = new ArrayList<double[][]>();
+	private List<Prediction> getMinimax(List<Prediction> minimax, List<Play> bestMoves, Gomoku game, int amount, int maxDepth, int currentDepth, double[][] moveBoard, int playerValue) {
+		this.addPredictions(minimax, bestMoves, amount, playerValue);
+		if (++currentDepth < maxDepth) {
+			for (Prediction prediction : minimax) {
+				this.predict(prediction, game, amount, maxDepth, currentDepth, moveBoard, playerValue + 1);
+			}
+		}
+		return (minimax);
+	}
+	
+	/**
+	 * Returns a list of minimax moves, predicting the answers to every move on its own thread
+	 * of the common fork-join pool. The game is only read while predicting.
+	 * 
+	 * @param game
+	 * @param amount
+	 * @param maxDepth
+	 * @return The list of moves.
+	 */
+	private List<Prediction> getParallelMinimax(final Gomoku game, final int amount, final int maxDepth) {
+		final double[][] moveBoard = new double[Gomoku.BOARD_LENGTH][Gomoku.BOARD_LENGTH];
+		// The current moves are scored without a player, the weights are tuned for it
+		List<Prediction> minimax = this.addPredictions(new ArrayList<Prediction>(), this.scanBoard(game, moveBoard, 0), amount, 0);
+		if (maxDepth <= 1) {
+			return (minimax);
+		}
 		
-		int i = 0;
-		for (Play move : this.bestMoves) {
-//			System.out.println(this.bestMoves.size());
-			minimax.add(new Prediction(move, togglePlayer[playerValue % 2]));
-			updatedBoard.add(moveBoard);
-			updatedBoard.get(i)[minimax.get(i).move.x][minimax.get(i).move.y] = togglePlayer[playerValue % 2];
-//			System.out.println("Depth : " + currentDepth + " Inserting Piece of X [" + minimax.get(i).move.x + "] Y [" + minimax.get(i).move.y + "] Score - " + minimax.get(i).move.score);
-			if (++i >= amount) {
-				currentDepth++;
-				for (int j = 0; j < amount && currentDepth < maxDepth; j++) {
-//					System.out.println("Passing into scanBoard X " + minimax.get(j).move.x + " Y " + minimax.get(j).move.y);
-					this.scanBoard(game, updatedBoard.get(j), togglePlayer[playerValue % 2]);
-					this.getMinimax(minimax.get(j).nextPlay, game, amount, maxDepth, currentDepth, updatedBoard.get(j), playerValue++);
+		List<RecursiveAction> branches = new ArrayList<RecursiveAction>(minimax.size());
+		for (final Prediction prediction : minimax) {
+			branches.add(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+				
+				@Override
+				protected void compute() {
+					Lydeka.this.predict(prediction, game, amount, maxDepth, 1, moveBoard, 1);
 				}
-				break; 
-			}
+			});
 		}
+		ForkJoinTask.invokeAll(branches);
 		return (minimax);
 	}
 	
@@ -288,14 +359,10 @@ public class Lydeka implements PlayerController, AIController {
 //			System.out.println("Start 0.0 9 9");
 		}
 		else {
-			this.scanBoard(game, new double[Gomoku.BOARD_LENGTH][Gomoku.BOARD_LENGTH], 0);
-			List<Prediction> moveToPlay = new ArrayList<Prediction>();
-			moveToPlay = this.getMinimax(new ArrayList<Prediction>(), game,
-					this.minmaxAmount, this.minmaxDepth * Gomoku.PLAYER_COUNT, 0,
-					new double[Gomoku.BOARD_LENGTH][Gomoku.BOARD_LENGTH], 0);
+			List<Prediction> moveToPlay = this.getParallelMinimax(game, this.minmaxAmount, this.minmaxDepth * Gomoku.PLAYER_COUNT);
 			List<Play> sortPlayList = new ArrayList<Play>();
 			for (Prediction sortItem : moveToPlay) {
-				sortItem.getTotal();
+				sortItem.getTotal(this.playerNumber);
 				sortPlayList.add(new Play(sortItem.totalScore, sortItem.move.x, sortItem.move.y));
 			}
 			Collections.sort(sortPlayList);
@@ -319,14 +386,14 @@ public class Lydeka implements PlayerController, AIController {
 	@Override
 	public void gameStart(Gomoku game, int value) {
 		if (value == 1) {
-			Lydeka.playerNumber = value;
+			this.playerNumber = value;
 			this.enemyNumber = value + 1;
 		}
 		else {
-			Lydeka.playerNumber = value;
+			this.playerNumber = value;
 			this.enemyNumber = value - 1;
 		}
-		this.togglePlayer[0] = Lydeka.playerNumber;
+		this.togglePlayer[0] = this.playerNumber;
 		this.togglePlayer[1] = this.enemyNumber;
 	}
 	
@@ -338,4 +405,14 @@ public class Lydeka implements PlayerController, AIController {
 	public double getTimeElapsed() {
 		return (this.timeTaken);
 	}
+	
+	@Override
+	public Weights getWeights() {
+		return (this.weights);
+	}
+	
+	@Override
+	public void setWeights(Weights weights) {
+		this.weights = weights;
+	}
 }
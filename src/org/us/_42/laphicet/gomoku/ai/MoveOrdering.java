@@ -0,0 +1,186 @@
+package org.us._42.laphicet.gomoku.ai;
+
+import org.us._42.laphicet.gomoku.Gomoku;
+
+/**
+ * Orders the moves of a search with the killer and history heuristics.
+ * 
+ * Killers are the last moves that caused a cutoff at each distance from the root, as the same
+ * move often refutes its siblings as well. The history counts how often, and how deep, each move
+ * of each player caused a cutoff anywhere in the search.
+ * Moves are cell indices, (y * BOARD_LENGTH) + x, and everything is kept in primitive arrays
+ * and sorted in place, so ordering a node allocates nothing.
+ */
+public class MoveOrdering {
+	public static final int KILLER_SLOTS = 2;
+	
+	private static final int CELL_COUNT = Gomoku.BOARD_LENGTH * Gomoku.BOARD_LENGTH;
+	private static final int[] KILLER_BONUS = { 300, 150 };
+	private static final int HISTORY_LIMIT = 1 << 14;
+	private static final int HISTORY_SHIFT = 8;
+	
+	private int[][] killers;
+	private int[][] history = new int[Gomoku.PLAYER_COUNT][CELL_COUNT];
+	
+	/**
+	 * Creates a new move ordering.
+	 * 
+	 * @param plies The number of distances from the root to keep killers for.
+	 */
+	public MoveOrdering(int plies) {
+		this.killers = new int[Math.max(plies, 1)][KILLER_SLOTS];
+		this.clearKillers();
+	}
+	
+	/**
+	 * Forgets every killer, for a search from a new root.
+	 */
+	public void clearKillers() {
+		for (int[] slots : this.killers) {
+			for (int i = 0; i < KILLER_SLOTS; i++) {
+				slots[i] = TranspositionTable.NO_MOVE;
+			}
+		}
+	}
+	
+	/**
+	 * Forgets every killer and the whole history, for a new game.
+	 */
+	public void clear() {
+		this.clearKillers();
+		for (int[] counts : this.history) {
+			for (int i = 0; i < CELL_COUNT; i++) {
+				counts[i] = 0;
+			}
+		}
+	}
+	
+	/**
+	 * Halves the history, so that older searches weigh less than the next one.
+	 */
+	public void age() {
+		for (int[] counts : this.history) {
+			for (int i = 0; i < CELL_COUNT; i++) {
+				counts[i] >>= 1;
+			}
+		}
+	}
+	
+	/**
+	 * Records a move that caused a cutoff.
+	 * 
+	 * @param ply The distance from the root of the search.
+	 * @param value The value of the player that made the move.
+	 * @param cell The cell index of the move.
+	 * @param depth The remaining depth of the search at the cutoff, deeper cutoffs weigh more.
+	 */
+	public void addCutoff(int ply, int value, int cell, int depth) {
+		if (ply < this.killers.length) {
+			int[] slots = this.killers[ply];
+			if (slots[0] != cell) {
+				slots[1] = slots[0];
+				slots[0] = cell;
+			}
+		}
+		
+		int[] counts = this.history[value - 1];
+		counts[cell] += depth * depth;
+		if (counts[cell] >= HISTORY_LIMIT) {
+			this.age();
+		}
+	}
+	
+	/**
+	 * Gets how much the heuristics favor a move.
+	 * 
+	 * @param ply The distance from the root of the search.
+	 * @param value The value of the player to move.
+	 * @param cell The cell index of the move.
+	 * @return The bonus of the move, to add to its priority.
+	 */
+	public int getBonus(int ply, int value, int cell) {
+		int bonus = this.history[value - 1][cell] >> HISTORY_SHIFT;
+		if (ply < this.killers.length) {
+			int[] slots = this.killers[ply];
+			for (int i = 0; i < KILLER_SLOTS; i++) {
+				if (slots[i] == cell) {
+					bonus += KILLER_BONUS[i];
+					break;
+				}
+			}
+		}
+		return (bonus);
+	}
+	
+	/**
+	 * Adds the bonus of every move to its priority, then brings the best moves to the front by priority.
+	 * 
+	 * @param moves The cell indices of the moves.
+	 * @param priorities The priorities of the moves, by index in the moves.
+	 * @param count The number of moves.
+	 * @param ply The distance from the root of the search.
+	 * @param value The value of the player to move.
+	 * @param limit The number of moves to keep.
+	 * @return The number of moves kept, sorted at the front of the arrays.
+	 */
+	public int order(int[] moves, int[] priorities, int count, int ply, int value, int limit) {
+		for (int i = 0; i < count; i++) {
+			if (priorities[i] != Integer.MAX_VALUE) {
+				priorities[i] += this.getBonus(ply, value, moves[i]);
+			}
+		}
+		return (select(moves, priorities, count, limit));
+	}
+	
+	/**
+	 * Sorts moves in place by priority, highest first. Moves of equal priority keep their order.
+	 * 
+	 * @param moves The cell indices of the moves.
+	 * @param priorities The priorities of the moves, by index in the moves.
+	 * @param count The number of moves.
+	 */
+	public static void sort(int[] moves, int[] priorities, int count) {
+		select(moves, priorities, count, count);
+	}
+	
+	/**
+	 * Brings the moves of highest priority to the front, in the order a sort would give them.
+	 * Only the kept moves are sorted, so a small limit costs little on a crowded board.
+	 * 
+	 * @param moves The cell indices of the moves.
+	 * @param priorities The priorities of the moves, by index in the moves.
+	 * @param count The number of moves.
+	 * @param limit The number of moves to keep.
+	 * @return The number of moves kept, the lesser of the count and the limit.
+	 */
+	public static int select(int[] moves, int[] priorities, int count, int limit) {
+		int kept = Math.min(count, limit);
+		if (kept <= 0) {
+			return (0);
+		}
+		
+		// Insertion sort into the kept moves, a later move only enters by beating the last one kept
+		for (int j = 1; j < count; j++) {
+			int move = moves[j];
+			int priority = priorities[j];
+			
+			int i = j;
+			if (j >= kept) {
+				if (priorities[kept - 1] >= priority) {
+					continue;
+				}
+				moves[j] = moves[kept - 1];
+				priorities[j] = priorities[kept - 1];
+				i = kept - 1;
+			}
+			while ((i > 0) && (priorities[i - 1] < priority)) {
+				moves[i] = moves[i - 1];
+				priorities[i] = priorities[i - 1];
+				i--;
+			}
+			moves[i] = move;
+			priorities[i] = priority;
+		}
+		return (kept);
+	}
+}
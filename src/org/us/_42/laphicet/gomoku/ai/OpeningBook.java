@@ -0,0 +1,192 @@
+package org.us._42.laphicet.gomoku.ai;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.us._42.laphicet.gomoku.Gomoku;
+import org.us._42.laphicet.gomoku.Symmetry;
+
+/**
+ * A book of opening moves, read straight from a memory-mapped file without any parsing.
+ * 
+ * Positions are keyed by {@link Gomoku#getCanonicalHash()}, which is the same for all 8 symmetries
+ * of the board, and moves are stored as seen from {@link Gomoku#getCanonicalTransform()}.
+ * A position reached in any orientation finds the same moves.
+ * 
+ * The file is a header followed by entries sorted by key, each a long key, a char cell index
+ * and a char weight. Entries of the same key are sorted by weight, highest first.
+ * Looking up a position is a binary search over the mapped entries.
+ */
+public class OpeningBook {
+	public static final int NO_MOVE = TranspositionTable.NO_MOVE;
+	
+	private static final int MAGIC = 0x474B4F42;
+	private static final int VERSION = 2;
+	private static final int HEADER_BYTES = 3 * Integer.BYTES;
+	private static final int ENTRY_BYTES = Long.BYTES + (2 * Character.BYTES);
+	
+	private final ByteBuffer entries;
+	private final int count;
+	
+	/**
+	 * Opens a book written by {@link Builder#write(Path)}.
+	 * The file is mapped into memory, and only the entries a lookup touches are ever read.
+	 * 
+	 * @param path The path of the book.
+	 * @throws IOException If the file cannot be read, or is not a book.
+	 */
+	public OpeningBook(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if ((buffer.capacity() < HEADER_BYTES) || (buffer.getInt(0) != MAGIC) || (buffer.getInt(Integer.BYTES) != VERSION)) {
+				throw new IOException(path + " is not an opening book.");
+			}
+			
+			this.count = buffer.getInt(2 * Integer.BYTES);
+			if ((long)buffer.capacity() < (HEADER_BYTES + ((long)this.count * ENTRY_BYTES))) {
+				throw new IOException(path + " is truncated.");
+			}
+			
+			buffer.position(HEADER_BYTES);
+			this.entries = buffer.slice();
+		}
+	}
+	
+	/**
+	 * Gets the number of moves in the book.
+	 * 
+	 * @return The number of entries.
+	 */
+	public int size() {
+		return (this.count);
+	}
+	
+	/**
+	 * Finds the best book move for the current position.
+	 * Book moves that are not legal for the player to move are skipped.
+	 * 
+	 * @param game The game to find a move for.
+	 * @param value The value of the player to move.
+	 * @return The cell index of the move, (y * BOARD_LENGTH) + x, or {@link OpeningBook#NO_MOVE} if the position is not in the book.
+	 */
+	public int getMove(Gomoku game, int value) {
+		int transform = game.getCanonicalTransform();
+		long key = game.getSymmetricHash(transform);
+		
+		// Binary search for the first entry of the key
+		int low = 0;
+		int high = this.count;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (this.entries.getLong(middle * ENTRY_BYTES) < key) {
+				low = middle + 1;
+			}
+			else {
+				high = middle;
+			}
+		}
+		
+		for (int i = low; (i < this.count) && (this.entries.getLong(i * ENTRY_BYTES) == key); i++) {
+			int cell = Symmetry.inverse(transform, this.entries.getChar((i * ENTRY_BYTES) + Long.BYTES));
+			if (game.isLegalMove(cell % Gomoku.BOARD_LENGTH, cell / Gomoku.BOARD_LENGTH, value)) {
+				return (cell);
+			}
+		}
+		return (NO_MOVE);
+	}
+	
+	/* ------- *
+	 * Builder *
+	 * ------- */
+	
+	/**
+	 * Collects weighted moves and writes them as a book.
+	 * Moves added for the same position in any orientation add up their weights.
+	 * A builder may be shared by several threads.
+	 */
+	public static class Builder {
+		private TreeMap<Long,Map<Integer,Integer>> positions = new TreeMap<Long,Map<Integer,Integer>>();
+		
+		/**
+		 * Adds a move to the book.
+		 * 
+		 * @param game The game, in the position before the move.
+		 * @param x The x coordinate of the move.
+		 * @param y The y coordinate of the move.
+		 * @param weight How much the move is worth, higher weights are played first.
+		 */
+		public synchronized void add(Gomoku game, int x, int y, int weight) {
+			int transform = game.getCanonicalTransform();
+			long key = game.getSymmetricHash(transform);
+			int cell = Symmetry.transform(transform, (y * Gomoku.BOARD_LENGTH) + x);
+			
+			Map<Integer,Integer> moves = this.positions.get(key);
+			if (moves == null) {
+				moves = new HashMap<Integer,Integer>();
+				this.positions.put(key, moves);
+			}
+			
+			Integer previous = moves.get(cell);
+			moves.put(cell, Math.min(((previous != null) ? previous : 0) + weight, Character.MAX_VALUE));
+		}
+		
+		/**
+		 * Gets the number of positions added so far.
+		 * 
+		 * @return The number of positions.
+		 */
+		public synchronized int getPositionCount() {
+			return (this.positions.size());
+		}
+		
+		/**
+		 * Writes every added move to a book file, replacing the file.
+		 * 
+		 * @param path The path of the book.
+		 * @throws IOException If the file cannot be written.
+		 */
+		public synchronized void write(Path path) throws IOException {
+			int count = 0;
+			for (Map<Integer,Integer> moves : this.positions.values()) {
+				count += moves.size();
+			}
+			
+			ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + (count * ENTRY_BYTES));
+			buffer.putInt(MAGIC).putInt(VERSION).putInt(count);
+			for (Entry<Long,Map<Integer,Integer>> position : this.positions.entrySet()) {
+				List<Entry<Integer,Integer>> moves = new ArrayList<Entry<Integer,Integer>>(position.getValue().entrySet());
+				Collections.sort(moves, new Comparator<Entry<Integer,Integer>>() {
+					@Override
+					public int compare(Entry<Integer,Integer> a, Entry<Integer,Integer> b) {
+						return (b.getValue().compareTo(a.getValue()));
+					}
+				});
+				
+				for (Entry<Integer,Integer> move : moves) {
+					buffer.putLong(position.getKey());
+					buffer.putChar((char)move.getKey().intValue());
+					buffer.putChar((char)move.getValue().intValue());
+				}
+			}
+			buffer.flip();
+			
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,247 @@
+package org.us._42.laphicet.gomoku.ai;
+
+import org.us._42.laphicet.gomoku.Gomoku;
+import org.us._42.laphicet.gomoku.Gomoku.Alignment;
+import org.us._42.laphicet.gomoku.LinePatterns;
+
+/**
+ * A quiescence search for the leaves of a fixed depth search.
+ * 
+ * A capture removes two tokens and brings a player closer to a win by capture, so a leaf
+ * evaluated in the middle of an exchange is often badly misjudged. Instead of evaluating such
+ * a leaf right away, the search keeps playing the moves that change the position the most:
+ * captures, making a five, blocking the opponent's five and guarding tokens that are in danger
+ * of capture. Once none of those are left the position is quiet and gets evaluated.
+ * 
+ * The player to move may always settle for the evaluation of the position instead, unless the
+ * opponent threatens to win on their next move. Every leaf has its own node cap, so a long
+ * exchange costs far less than searching a full turn deeper.
+ * 
+ * The search plays on the given game with {@link Gomoku#makeMove(int, int, int)} and
+ * {@link Gomoku#unmakeMove()}, and leaves it as it was found.
+ */
+public class QuiescenceSearch {
+	private static final int CELL_COUNT = Gomoku.BOARD_LENGTH * Gomoku.BOARD_LENGTH;
+	private static final int MAX_DEPTH = 16;
+	private static final int INFINITY = Evaluator.WIN + 1;
+	
+	private static final int FIVE_PRIORITY = 1 << 16;
+	private static final int CAPTURE_PRIORITY = 1 << 12;
+	private static final int BLOCK_PRIORITY = 1 << 8;
+	private static final int GUARD_PRIORITY = 1;
+	
+	private int depth;
+	private long nodeLimit;
+	
+	private Gomoku board = null;
+	private long nodes = 0;
+	private long total = 0;
+	
+	private boolean winning = false;
+	private boolean forced = false;
+	
+	private int[][] moves = new int[MAX_DEPTH][CELL_COUNT];
+	private int[][] priorities = new int[MAX_DEPTH][CELL_COUNT];
+	private int[] scratch = new int[CELL_COUNT];
+	
+	/**
+	 * Creates a new quiescence search.
+	 * 
+	 * @param depth The maximum number of moves to play past a leaf.
+	 * @param nodeLimit The maximum number of positions to visit past a single leaf.
+	 */
+	public QuiescenceSearch(int depth, long nodeLimit) {
+		this.depth = Math.max(0, Math.min(depth, MAX_DEPTH));
+		this.nodeLimit = Math.max(1, nodeLimit);
+	}
+	
+	/**
+	 * Creates a new quiescence search.
+	 */
+	public QuiescenceSearch() {
+		this(8, 64);
+	}
+	
+	/**
+	 * Scores a leaf once it is quiet.
+	 * 
+	 * @param game The game to search, in the position of the leaf.
+	 * @param value The value of the player to move.
+	 * @param alpha The score the player to move is already guaranteed.
+	 * @param beta The score the opponent is already guaranteed, as seen by the player to move.
+	 * @param ply The distance of the leaf from the root of the calling search, used to score wins.
+	 * @return The score of the leaf for the player to move.
+	 */
+	public int search(Gomoku game, int value, int alpha, int beta, int ply) {
+		this.board = game;
+		this.nodes = 0;
+		
+		int score = this.quiesce(0, ply, alpha, beta, value);
+		
+		this.total += this.nodes;
+		this.board = null;
+		return (score);
+	}
+	
+	/**
+	 * Returns how many positions were visited since the count was last cleared.
+	 * 
+	 * @return The number of visited positions.
+	 */
+	public long getNodeCount() {
+		return (this.total);
+	}
+	
+	/**
+	 * Clears the number of visited positions, see {@link QuiescenceSearch#getNodeCount()}.
+	 */
+	public void clearNodeCount() {
+		this.total = 0;
+	}
+	
+	/* ------ *
+	 * Search *
+	 * ------ */
+	
+	/**
+	 * Generates the moves that keep a position from being quiet, ordered by priority.
+	 * Also sets whether the player to move wins on the spot by capture, and whether the
+	 * opponent threatens to win on their next move.
+	 * 
+	 * @param qply The distance from the leaf, selecting the buffers to fill.
+	 * @param value The value of the player to move.
+	 * @param other The value of the opponent.
+	 * @param standing Whether or not the opponent has a five standing, leaving only captures.
+	 * @return The number of moves stored in the ply's buffer.
+	 */
+	private int generateMoves(int qply, int value, int other, boolean standing) {
+		int[] moves = this.moves[qply];
+		int[] priorities = this.priorities[qply];
+		this.winning = false;
+		this.forced = false;
+		
+		int count = 0;
+		int candidates = this.board.getCandidateMoves(value, this.scratch);
+		for (int j = 0; j < candidates; j++) {
+			int cell = this.scratch[j];
+			int x = cell % Gomoku.BOARD_LENGTH;
+			int y = cell / Gomoku.BOARD_LENGTH;
+			
+			// The patterns of both players tell captures and fives apart in a single lookup each
+			int own = 0;
+			int captures = 0;
+			int threats = 0;
+			boolean block = false;
+			for (Alignment alignment : Alignment.values()) {
+				int flags = this.board.getLinePattern(x, y, value, alignment);
+				int others = this.board.getLinePattern(x, y, other, alignment);
+				own |= flags;
+				captures += Integer.bitCount(flags & (LinePatterns.CAPTURE_FORWARD | LinePatterns.CAPTURE_BACKWARD));
+				threats += Integer.bitCount(others & (LinePatterns.CAPTURE_FORWARD | LinePatterns.CAPTURE_BACKWARD));
+				block |= ((others & LinePatterns.FIVE) != 0);
+			}
+			
+			if ((this.board.getCaptureCount(value) + captures) >= Gomoku.CAPTURES_TO_WIN) {
+				this.winning = true;
+				return (0);
+			}
+			
+			int priority = captures * CAPTURE_PRIORITY;
+			if ((own & LinePatterns.FIVE) != 0) {
+				priority += FIVE_PRIORITY;
+			}
+			if (!(standing)) {
+				if (block && this.board.isLegalMove(x, y, other)) {
+					priority += BLOCK_PRIORITY;
+					this.forced = true;
+				}
+				
+				// Taking the cell the opponent would capture from guards the tokens in danger
+				if (threats != 0) {
+					priority += threats * GUARD_PRIORITY;
+					if ((this.board.getCaptureCount(other) + threats) >= Gomoku.CAPTURES_TO_WIN) {
+						this.forced = true;
+					}
+				}
+			}
+			else if (captures == 0) {
+				continue;
+			}
+			if (priority == 0) {
+				continue;
+			}
+			
+			moves[count] = cell;
+			priorities[count++] = priority;
+		}
+		MoveOrdering.sort(moves, priorities, count);
+		return (count);
+	}
+	
+	/**
+	 * Searches the current position along the moves that keep it from being quiet.
+	 * 
+	 * @param qply The distance from the leaf.
+	 * @param ply The distance from the root of the calling search.
+	 * @param alpha The score the player to move is already guaranteed.
+	 * @param beta The score the opponent is already guaranteed, as seen by the player to move.
+	 * @param value The value of the player to move.
+	 * @return The score of the position for the player to move.
+	 */
+	private int quiesce(int qply, int ply, int alpha, int beta, int value) {
+		this.nodes++;
+		
+		int winner = this.board.getWinner();
+		if (winner != 0) {
+			return ((winner == value) ? (Evaluator.WIN - ply) : -(Evaluator.WIN - ply));
+		}
+		
+		int eval = Evaluator.evaluate(this.board, value);
+		if ((qply >= this.depth) || (this.nodes >= this.nodeLimit)) {
+			return (eval);
+		}
+		
+		// A five of the opponent wins with the next move, unless that move captures part of it
+		int other = (value % Gomoku.PLAYER_COUNT) + 1;
+		boolean standing = (this.board.getPendingRow() == other);
+		int count = this.generateMoves(qply, value, other, standing);
+		if (this.winning) {
+			return (Evaluator.WIN - (ply + 1));
+		}
+		
+		// Settling for the evaluation is only safe if the opponent cannot win on their next move
+		int best = -INFINITY;
+		if (!(standing) && !(this.forced)) {
+			if (eval >= beta) {
+				return (eval);
+			}
+			best = eval;
+			alpha = Math.max(alpha, eval);
+		}
+		
+		for (int i = 0; i < count; i++) {
+			int cell = this.moves[qply][i];
+			int x = cell % Gomoku.BOARD_LENGTH;
+			int y = cell / Gomoku.BOARD_LENGTH;
+			
+			this.board.makeMove(x, y, value);
+			int score = -(this.quiesce(qply + 1, ply + 1, -beta, -alpha, other));
+			this.board.unmakeMove();
+			
+			if (score > best) {
+				best = score;
+				if (score > alpha) {
+					alpha = score;
+					if (alpha >= beta) {
+						break;
+					}
+				}
+			}
+		}
+		
+		if (best == -INFINITY) {
+			return (standing ? -(Evaluator.WIN - (ply + 1)) : eval);
+		}
+		return (best);
+	}
+}
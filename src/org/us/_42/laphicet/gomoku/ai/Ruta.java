@@ -0,0 +1,707 @@
+package org.us._42.laphicet.gomoku.ai;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.us._42.laphicet.gomoku.Gomoku;
+import org.us._42.laphicet.gomoku.Gomoku.Alignment;
+import org.us._42.laphicet.gomoku.PlayerController;
+
+/**
+ * A negamax Gomoku AI with alpha-beta pruning.
+ * 
+ * The search walks a single private copy of the game with {@link Gomoku#makeMove(int, int, int)}
+ * and {@link Gomoku#unmakeMove()}, so no game is cloned per node.
+ * Results are kept in a {@link TranspositionTable} to skip positions reached more than once.
+ * 
+ * The search deepens one turn at a time. With a time budget, the best move of the last
+ * finished iteration is played once the budget runs out.
+ * Before searching, a {@link ThreatSearch} looks for a forced win by continuous fours.
+ * Leaves are scored by a {@link QuiescenceSearch}, so the search does not stop in the middle of a capture exchange.
+ * 
+ * With pondering, the search goes on in the background after a move, assuming the opponent plays the
+ * reply it expects. If they do, that search is carried on, otherwise it is thrown away.
+ */
+public class Ruta implements PlayerController, AIController {
+	private static final int CELL_COUNT = Gomoku.BOARD_LENGTH * Gomoku.BOARD_LENGTH;
+	protected static final int MAX_PLY = 64;
+	private static final int INFINITY = Evaluator.WIN + 1;
+	private static final int TIME_CHECK_INTERVAL = 1024;
+	private static final int ASPIRATION_WINDOW = 256;
+	
+	private static final ThreadFactory DAEMON_FACTORY = new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+			thread.setDaemon(true);
+			return (thread);
+		}
+	};
+	
+	private Gomoku board = null;
+	private TranspositionTable table;
+	private ThreatSearch threats = new ThreatSearch();
+	private QuiescenceSearch quiescence = new QuiescenceSearch();
+	private MoveOrdering ordering = new MoveOrdering(MAX_PLY);
+	
+	private int depth;
+	private int width;
+	private long budget;
+	private boolean principal;
+	
+	private volatile long deadline = 0;
+	private volatile boolean stopped = false;
+	
+	private boolean pondering = false;
+	private ExecutorService ponderer = null;
+	private Future<Integer> ponder = null;
+	private long ponderHash = 0;
+	
+	private int[][] moves = new int[MAX_PLY][CELL_COUNT];
+	private int[][] priorities = new int[MAX_PLY][CELL_COUNT];
+	private int[][] variations = new int[MAX_PLY][MAX_PLY];
+	private int[] variationLengths = new int[MAX_PLY];
+	private int[] variation = new int[0];
+	
+	private int bestMove = TranspositionTable.NO_MOVE;
+	private int reached = 0;
+	private long nodes = 0;
+	private long checkpoint = 0;
+	
+	// The statistics of the last move played, kept apart from the search's while it ponders
+	private double elapsed = 0.0;
+	private int reportedDepth = 0;
+	private long reportedNodes = 0;
+	private int[] reportedVariation = new int[0];
+	
+	/**
+	 * Creates a new instance of the Ruta Gomoku AI.
+	 * 
+	 * @param depth The maximum number of turns to search before making a decision.
+	 * @param width The number of moves to consider at each step, 0 for all of them.
+	 * @param megabytes The size of the transposition table.
+	 * @param seconds The time budget for each move, 0 to always search to the full depth.
+	 * @param principal Whether or not to use principal variation search with aspiration windows, see {@link Egle}.
+	 */
+	protected Ruta(int depth, int width, int megabytes, double seconds, boolean principal) {
+		if (depth <= 0) {
+			throw new IllegalArgumentException("Ruta needs to search at least one turn!");
+		}
+		this.depth = Math.min(depth, MAX_PLY - 1);
+		this.width = (width > 0) ? width : CELL_COUNT;
+		this.budget = (long)(Math.max(seconds, 0.0) * 1000000000.0);
+		this.table = new TranspositionTable(megabytes);
+		this.principal = principal;
+	}
+	
+	/**
+	 * Creates a new instance of the Ruta Gomoku AI.
+	 * 
+	 * @param depth The maximum number of turns to search before making a decision.
+	 * @param width The number of moves to consider at each step, 0 for all of them.
+	 * @param megabytes The size of the transposition table.
+	 * @param seconds The time budget for each move, 0 to always search to the full depth.
+	 */
+	public Ruta(int depth, int width, int megabytes, double seconds) {
+		this(depth, width, megabytes, seconds, false);
+	}
+	
+	/**
+	 * Creates a new instance of the Ruta Gomoku AI.
+	 * 
+	 * @param depth How many turns to search before making a decision.
+	 * @param width The number of moves to consider at each step, 0 for all of them.
+	 * @param megabytes The size of the transposition table.
+	 */
+	public Ruta(int depth, int width, int megabytes) {
+		this(depth, width, megabytes, 0.0);
+	}
+	
+	/**
+	 * Creates a new instance of the Ruta Gomoku AI that searches as deep as a time budget allows.
+	 * 
+	 * @param seconds The time budget for each move.
+	 * @param width The number of moves to consider at each step, 0 for all of them.
+	 */
+	public Ruta(double seconds, int width) {
+		this(MAX_PLY - 1, width, 32, seconds);
+	}
+	
+	/**
+	 * Creates a new instance of the Ruta Gomoku AI.
+	 * 
+	 * @param depth How many turns to search before making a decision.
+	 * @param width The number of moves to consider at each step, 0 for all of them.
+	 */
+	public Ruta(int depth, int width) {
+		this(depth, width, 32);
+	}
+	
+	/**
+	 * Creates a new instance of the Ruta Gomoku AI.
+	 */
+	public Ruta() {
+		this(6, 12);
+	}
+	
+	/**
+	 * Enables or disables pondering, searching on during the opponent's turn.
+	 * 
+	 * @param pondering Whether or not to ponder.
+	 */
+	public void setPondering(boolean pondering) {
+		this.pondering = pondering;
+		if (!(pondering)) {
+			this.stopPondering(false);
+		}
+	}
+	
+	/* -------------- *
+	 * Move Selection *
+	 * -------------- */
+	
+	private static final int[] RUN_SCORES = { 0, 1, 4, 32, 256, 4096 };
+	private static final int CAPTURE_PRIORITY = 64;
+	
+	/**
+	 * Scores a run of tokens that placing a token would extend, in one alignment.
+	 * 
+	 * @param x The x coordinate of the token.
+	 * @param y The y coordinate of the token.
+	 * @param value The value of the tokens in the run.
+	 * @param alignment The alignment of the run.
+	 * @return The score of the run, higher for longer runs with open ends.
+	 */
+	private int scoreRun(int x, int y, int value, Alignment alignment) {
+		int length = 1;
+		int open = 0;
+		
+		int i = 1;
+		while (this.board.getToken(x + (alignment.dx * i), y + (alignment.dy * i)) == value) {
+			length++;
+			i++;
+		}
+		if (this.board.getToken(x + (alignment.dx * i), y + (alignment.dy * i)) == 0) {
+			open++;
+		}
+		
+		i = 1;
+		while (this.board.getToken(x - (alignment.dx * i), y - (alignment.dy * i)) == value) {
+			length++;
+			i++;
+		}
+		if (this.board.getToken(x - (alignment.dx * i), y - (alignment.dy * i)) == 0) {
+			open++;
+		}
+		
+		if (length >= Gomoku.ADJACENT_TO_WIN) {
+			return (RUN_SCORES[Gomoku.ADJACENT_TO_WIN]);
+		}
+		return (RUN_SCORES[length] * open);
+	}
+	
+	/**
+	 * Gives a move a priority for the search to try it in, without playing it.
+	 * Moves that extend our rows, block the opponent's rows or capture go first.
+	 * 
+	 * @param x The x coordinate of the move.
+	 * @param y The y coordinate of the move.
+	 * @param value The value of the player making the move.
+	 * @return The priority of the move.
+	 */
+	private int prioritize(int x, int y, int value) {
+		int other = (value % Gomoku.PLAYER_COUNT) + 1;
+		
+		int priority = 0;
+		for (Alignment alignment : Alignment.values()) {
+			priority += this.scoreRun(x, y, value, alignment) * 2;
+			priority += this.scoreRun(x, y, other, alignment);
+		}
+		priority += this.board.countCaptures(x, y, value) * CAPTURE_PRIORITY * (this.board.getCaptureCount(value) + 1);
+		priority += this.board.countCaptures(x, y, other) * CAPTURE_PRIORITY;
+		return (priority);
+	}
+	
+	/**
+	 * Generates the legal moves near existing tokens, see {@link Gomoku#getCandidateMoves(int, int[])}, ordered by priority.
+	 * The move suggested by the transposition table is always tried first, the {@link MoveOrdering} adds to the rest.
+	 * Only the best moves up to the width are kept.
+	 * 
+	 * @param ply The distance from the root of the search, selecting the buffers to fill.
+	 * @param value The value of the player to move.
+	 * @param hint The cell index of a move to try first, or NO_MOVE.
+	 * @return The number of moves kept at the front of the ply's buffer.
+	 */
+	private int generateMoves(int ply, int value, int hint) {
+		int[] moves = this.moves[ply];
+		int[] priorities = this.priorities[ply];
+		
+		int count = this.board.getCandidateMoves(value, moves);
+		for (int i = 0; i < count; i++) {
+			int cell = moves[i];
+			priorities[i] = (cell == hint) ? Integer.MAX_VALUE : this.prioritize(cell % Gomoku.BOARD_LENGTH, cell / Gomoku.BOARD_LENGTH, value);
+		}
+		return (this.ordering.order(moves, priorities, count, ply, value, this.width));
+	}
+	
+	/* ------ *
+	 * Search *
+	 * ------ */
+	
+	/**
+	 * Converts a score to be stored in the transposition table.
+	 * Win scores are made relative to the stored position instead of the root.
+	 * 
+	 * @param score The score of the position.
+	 * @param ply The distance of the position from the root.
+	 * @return The score to store.
+	 */
+	private static int toTable(int score, int ply) {
+		if (score >= Evaluator.WIN - MAX_PLY) {
+			return (score + ply);
+		}
+		if (score <= -(Evaluator.WIN - MAX_PLY)) {
+			return (score - ply);
+		}
+		return (score);
+	}
+	
+	/**
+	 * Converts a score read from the transposition table, see {@link Ruta#toTable(int, int)}.
+	 * 
+	 * @param score The stored score.
+	 * @param ply The distance of the position from the root.
+	 * @return The score of the position.
+	 */
+	private static int fromTable(int score, int ply) {
+		if (score >= Evaluator.WIN - MAX_PLY) {
+			return (score - ply);
+		}
+		if (score <= -(Evaluator.WIN - MAX_PLY)) {
+			return (score + ply);
+		}
+		return (score);
+	}
+	
+	/**
+	 * Searches the current position with negamax and alpha-beta pruning.
+	 * With principal variation search, every move after the first is searched with a null window,
+	 * only proving it is no better, and searched again with the full window if it is.
+	 * The best line found is kept in the ply's variation.
+	 * 
+	 * @param depth The remaining number of turns to search.
+	 * @param ply The distance from the root of the search.
+	 * @param alpha The score the player to move is already guaranteed.
+	 * @param beta The score the opponent is already guaranteed, as seen by the player to move.
+	 * @param value The value of the player to move.
+	 * @return The score of the position for the player to move.
+	 */
+	private int search(int depth, int ply, int alpha, int beta, int value) {
+		// Positions visited by the quiescence search take time as well
+		if ((++this.nodes + this.quiescence.getNodeCount()) >= this.checkpoint) {
+			this.checkpoint += TIME_CHECK_INTERVAL;
+			this.checkTime();
+		}
+		if (this.stopped) {
+			return (0);
+		}
+		this.variationLengths[ply] = 0;
+		
+		int winner = this.board.getWinner();
+		if (winner != 0) {
+			return ((winner == value) ? (Evaluator.WIN - ply) : -(Evaluator.WIN - ply));
+		}
+		if ((depth <= 0) || (ply >= MAX_PLY - 1)) {
+			return (this.quiescence.search(this.board, value, alpha, beta, ply));
+		}
+		
+		long hash = this.board.getPositionHash();
+		long entry = this.table.probe(hash);
+		int hint = TranspositionTable.NO_MOVE;
+		if (entry != 0) {
+			hint = TranspositionTable.getMove(entry);
+			if ((ply > 0) && (TranspositionTable.getDepth(entry) >= depth)) {
+				int score = fromTable(TranspositionTable.getScore(entry), ply);
+				int bound = TranspositionTable.getBound(entry);
+				if ((bound == TranspositionTable.BOUND_EXACT) ||
+						((bound == TranspositionTable.BOUND_LOWER) && (score >= beta)) ||
+						((bound == TranspositionTable.BOUND_UPPER) && (score <= alpha))) {
+					return (score);
+				}
+			}
+		}
+		
+		int count = this.generateMoves(ply, value, hint);
+		if (count == 0) {
+			return (0);
+		}
+		
+		int other = (value % Gomoku.PLAYER_COUNT) + 1;
+		int start = alpha;
+		int best = -INFINITY;
+		int move = TranspositionTable.NO_MOVE;
+		for (int i = 0; i < count; i++) {
+			int cell = this.moves[ply][i];
+			this.board.makeMove(cell % Gomoku.BOARD_LENGTH, cell / Gomoku.BOARD_LENGTH, value);
+			int score;
+			if (!(this.principal) || (i == 0)) {
+				score = -(this.search(depth - 1, ply + 1, -beta, -alpha, other));
+			}
+			else {
+				score = -(this.search(depth - 1, ply + 1, -alpha - 1, -alpha, other));
+				if ((score > alpha) && (score < beta) && !(this.stopped)) {
+					score = -(this.search(depth - 1, ply + 1, -beta, -alpha, other));
+				}
+			}
+			this.board.unmakeMove();
+			
+			if (this.stopped) {
+				return (0);
+			}
+			
+			if (score > best) {
+				best = score;
+				move = cell;
+				if (score > alpha) {
+					alpha = score;
+					this.updateVariation(ply, cell);
+					if (alpha >= beta) {
+						this.ordering.addCutoff(ply, value, cell, depth);
+						break;
+					}
+				}
+			}
+		}
+		
+		int bound = TranspositionTable.BOUND_EXACT;
+		if (best <= start) {
+			bound = TranspositionTable.BOUND_UPPER;
+		}
+		else if (best >= beta) {
+			bound = TranspositionTable.BOUND_LOWER;
+		}
+		this.table.store(hash, depth, bound, toTable(best, ply), move);
+		
+		if (ply == 0) {
+			this.bestMove = move;
+		}
+		return (best);
+	}
+	
+	/**
+	 * Sets the variation of a ply to a move followed by the variation of the next ply.
+	 * 
+	 * @param ply The distance from the root of the search.
+	 * @param cell The cell index of the move.
+	 */
+	private void updateVariation(int ply, int cell) {
+		int[] variation = this.variations[ply];
+		variation[0] = cell;
+		
+		int length = 0;
+		if (ply + 1 < MAX_PLY) {
+			length = Math.min(this.variationLengths[ply + 1], MAX_PLY - 1);
+			System.arraycopy(this.variations[ply + 1], 0, variation, 1, length);
+		}
+		this.variationLengths[ply] = length + 1;
+	}
+	
+	/**
+	 * Stops the search if the time budget has run out.
+	 */
+	private void checkTime() {
+		if ((this.deadline != 0) && (System.nanoTime() >= this.deadline)) {
+			this.stopped = true;
+		}
+	}
+	
+	/**
+	 * Searches one turn deeper at a time until the maximum depth or the time budget is reached.
+	 * An iteration cut short by the budget is discarded.
+	 * With principal variation search, every iteration first searches a window around the score of
+	 * the previous one, and widens it whenever the score falls outside.
+	 * 
+	 * @param value The value of the player to move.
+	 * @return The cell index of the best move of the last finished iteration, or NO_MOVE.
+	 */
+	private int deepen(int value) {
+		int move = TranspositionTable.NO_MOVE;
+		int score = 0;
+		for (int depth = 1; depth <= this.depth; depth++) {
+			int window = ASPIRATION_WINDOW;
+			int alpha = -INFINITY;
+			int beta = INFINITY;
+			if (this.principal && (depth > 1)) {
+				alpha = Math.max(score - window, -INFINITY);
+				beta = Math.min(score + window, INFINITY);
+			}
+			
+			while (true) {
+				this.bestMove = TranspositionTable.NO_MOVE;
+				int result = this.search(depth, 0, alpha, beta, value);
+				if (this.stopped) {
+					break;
+				}
+				
+				if ((result <= alpha) && (alpha > -INFINITY)) {
+					window *= 4;
+					alpha = Math.max(result - window, -INFINITY);
+				}
+				else if ((result >= beta) && (beta < INFINITY)) {
+					window *= 4;
+					beta = Math.min(result + window, INFINITY);
+				}
+				else {
+					score = result;
+					break;
+				}
+			}
+			if (this.stopped) {
+				break;
+			}
+			
+			move = this.bestMove;
+			this.reached = depth;
+			this.variation = new int[this.variationLengths[0]];
+			System.arraycopy(this.variations[0], 0, this.variation, 0, this.variation.length);
+			
+			// A forced result will not change by searching deeper
+			if (Math.abs(score) >= Evaluator.WIN - MAX_PLY) {
+				break;
+			}
+		}
+		return (move);
+	}
+	
+	/**
+	 * Finds any legal move, for when no move is near the existing tokens.
+	 * 
+	 * @param value The value of the player to move.
+	 * @return The cell index of a legal move, or NO_MOVE if there is none.
+	 */
+	private int findAnyMove(int value) {
+		for (int cell = 0; cell < CELL_COUNT; cell++) {
+			int x = cell % Gomoku.BOARD_LENGTH;
+			int y = cell / Gomoku.BOARD_LENGTH;
+			if (this.board.isLegalMove(x, y, value)) {
+				return (cell);
+			}
+		}
+		return (TranspositionTable.NO_MOVE);
+	}
+	
+	/**
+	 * Resets the state of the search before thinking about a position.
+	 * 
+	 * @param deadline The time at which to stop searching, 0 for no time limit.
+	 */
+	private void prepare(long deadline) {
+		this.nodes = 0;
+		this.checkpoint = TIME_CHECK_INTERVAL;
+		this.reached = 0;
+		this.variation = new int[0];
+		this.stopped = false;
+		this.deadline = deadline;
+		this.table.newSearch();
+		this.quiescence.clearNodeCount();
+		this.ordering.clearKillers();
+		this.ordering.age();
+	}
+	
+	/**
+	 * Chooses a move for the position of the private copy of the game.
+	 * 
+	 * @param value The value of the player to move.
+	 * @return The cell index of the chosen move, or NO_MOVE if there is none.
+	 */
+	private int think(int value) {
+		int move = this.threats.findVCF(this.board, value);
+		this.nodes += this.threats.getNodeCount();
+		if (move != TranspositionTable.NO_MOVE) {
+			this.variation = new int[] { move };
+		}
+		else {
+			move = this.deepen(value);
+		}
+		if (move == TranspositionTable.NO_MOVE) {
+			move = this.findAnyMove(value);
+		}
+		
+		this.nodes += this.quiescence.getNodeCount();
+		return (move);
+	}
+	
+	/* --------- *
+	 * Pondering *
+	 * --------- */
+	
+	/**
+	 * Starts thinking about the position after a move and the reply expected from the opponent, in the background.
+	 * Nothing is started if the search does not expect a reply.
+	 * 
+	 * @param move The cell index of the move that was just chosen.
+	 * @param value The value of the player that chose the move.
+	 */
+	private void startPondering(int move, int value) {
+		if ((this.variation.length < 2) || (this.variation[0] != move)) {
+			return;
+		}
+		
+		int other = (value % Gomoku.PLAYER_COUNT) + 1;
+		int reply = this.variation[1];
+		this.board.makeMove(move % Gomoku.BOARD_LENGTH, move / Gomoku.BOARD_LENGTH, value);
+		this.board.makeMove(reply % Gomoku.BOARD_LENGTH, reply / Gomoku.BOARD_LENGTH, other);
+		if (this.board.getWinner() != 0) {
+			return;
+		}
+		
+		if (this.ponderer == null) {
+			this.ponderer = Executors.newSingleThreadExecutor(DAEMON_FACTORY);
+		}
+		this.ponderHash = this.board.getPositionHash();
+		this.prepare(0);
+		this.ponder = this.ponderer.submit(new Callable<Integer>() {
+			@Override
+			public Integer call() {
+				return (Ruta.this.think(value));
+			}
+		});
+	}
+	
+	/**
+	 * Waits for the background search to end.
+	 * 
+	 * @param hit Whether or not the expected reply was played, in which case the search is let to finish.
+	 * @return The cell index of the move found by a search that was let to finish, or NO_MOVE.
+	 */
+	private int stopPondering(boolean hit) {
+		if (this.ponder == null) {
+			return (TranspositionTable.NO_MOVE);
+		}
+		if (!(hit)) {
+			this.stopped = true;
+		}
+		
+		int move = TranspositionTable.NO_MOVE;
+		try {
+			move = this.ponder.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+		finally {
+			this.ponder = null;
+		}
+		return (hit ? move : TranspositionTable.NO_MOVE);
+	}
+	
+	/* ----------------- *
+	 * Player Controller *
+	 * ----------------- */
+	
+	@Override
+	public String name(Gomoku game, int value) {
+		return ("Ruta");
+	}
+	
+	@Override
+	public void report(Gomoku game, String message) {
+		System.err.println("[Ruta] " + message);
+	}
+	
+	@Override
+	public void informChange(Gomoku game, int x, int y, int value) { }
+	
+	@Override
+	public void informWinner(Gomoku game, int value) { }
+	
+	@Override
+	public boolean getMove(Gomoku game, int value, long key) {
+		long start = System.nanoTime();
+		long deadline = (this.budget > 0) ? (start + this.budget) : 0;
+		
+		int move = TranspositionTable.NO_MOVE;
+		boolean hit = false;
+		if (this.ponder != null) {
+			// The background search carries on with the time budget of this move
+			hit = (this.board != null) && (game.getPositionHash() == this.ponderHash);
+			if (hit) {
+				this.deadline = deadline;
+			}
+			move = this.stopPondering(hit);
+		}
+		
+		if (!(hit) || (move == TranspositionTable.NO_MOVE)) {
+			if (this.board == null) {
+				PlayerController[] players = new PlayerController[Gomoku.PLAYER_COUNT];
+				for (int i = 0; i < Gomoku.PLAYER_COUNT; i++) {
+					players[i] = game.getPlayerController(i + 1);
+				}
+				this.board = game.clone(null, players);
+			}
+			else {
+				this.board.cloneOf(game);
+			}
+			
+			this.prepare(deadline);
+			move = this.think(value);
+		}
+		
+		this.elapsed = (double)(System.nanoTime() - start) / 1000000000.0;
+		this.reportedDepth = this.reached;
+		this.reportedNodes = this.nodes;
+		this.reportedVariation = this.variation;
+		if (move == TranspositionTable.NO_MOVE) {
+			return (false);
+		}
+		game.submitMove(move % Gomoku.BOARD_LENGTH, move / Gomoku.BOARD_LENGTH, key);
+		
+		if (this.pondering) {
+			this.startPondering(move, value);
+		}
+		return (true);
+	}
+	
+	@Override
+	public void gameStart(Gomoku game, int value) {
+		this.stopPondering(false);
+		this.table.clear();
+		this.ordering.clear();
+	}
+	
+	@Override
+	public void gameEnd(Gomoku game) {
+		this.stopPondering(false);
+		if (this.ponderer != null) {
+			this.ponderer.shutdownNow();
+			this.ponderer = null;
+		}
+	}
+	
+	@Override
+	public double getTimeElapsed() {
+		return (this.elapsed);
+	}
+	
+	@Override
+	public int getDepthReached() {
+		return (this.reportedDepth);
+	}
+	
+	@Override
+	public long getNodeCount() {
+		return (this.reportedNodes);
+	}
+	
+	@Override
+	public int[] getPrincipalVariation() {
+		return (this.reportedVariation.clone());
+	}
+}
@@ -0,0 +1,471 @@
+package org.us._42.laphicet.gomoku.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.us._42.laphicet.gomoku.Gomoku;
+import org.us._42.laphicet.gomoku.PlayerController;
+
+/**
+ * A Monte Carlo tree search Gomoku AI.
+ * 
+ * Moves are chosen with UCT and every new leaf is scored by a playout, a game finished with
+ * random moves that prefer captures. The most visited move is played once the time budget runs out.
+ * 
+ * Playouts run on several threads sharing one tree. Every thread walks its own copy of the game with
+ * {@link Gomoku#makeMove(int, int, int)} and {@link Gomoku#unmakeMove()}, and only holds the tree's
+ * lock while selecting and backing up. A thread passing through a node adds a virtual loss to it
+ * until its playout is backed up, steering the other threads towards other branches.
+ * 
+ * Random playouts are blind to forced wins, so a {@link ThreatSearch} looks for one first.
+ */
+public class Saule implements PlayerController, AIController {
+	private static final int CELL_COUNT = Gomoku.BOARD_LENGTH * Gomoku.BOARD_LENGTH;
+	private static final double EXPLORATION = 1.4;
+	private static final int VIRTUAL_LOSS = 1;
+	
+	private static final ThreadFactory DAEMON_FACTORY = new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+			thread.setDaemon(true);
+			return (thread);
+		}
+	};
+	
+	/**
+	 * A position in the search tree, reached by a move.
+	 * Scores are counted in half points for the player that made the move, 2 for a win and 1 for a draw.
+	 */
+	private static class Node {
+		private final Node parent;
+		private final int move;
+		private final int value;
+		
+		private Node[] children = null;
+		private int visits = 0;
+		private int virtual = 0;
+		private long score = 0;
+		
+		private Node(Node parent, int move, int value) {
+			this.parent = parent;
+			this.move = move;
+			this.value = value;
+		}
+	}
+	
+	private int threads;
+	private long budget;
+	private ExecutorService executor = null;
+	private ThreatSearch threats = new ThreatSearch();
+	
+	private Gomoku game = null;
+	private Gomoku[] boards;
+	private Node root = null;
+	private long deadline = 0;
+	
+	private int reached = 0;
+	private long playouts = 0;
+	private double elapsed = 0.0;
+	
+	/**
+	 * Creates a new instance of the Saule Gomoku AI.
+	 * 
+	 * @param seconds The time budget for each move.
+	 * @param threads The number of threads to run playouts on.
+	 */
+	public Saule(double seconds, int threads) {
+		if (seconds <= 0.0) {
+			throw new IllegalArgumentException("Saule needs some time to play!");
+		}
+		this.budget = (long)(seconds * 1000000000.0);
+		this.threads = Math.max(threads, 1);
+		this.boards = new Gomoku[this.threads];
+	}
+	
+	/**
+	 * Creates a new instance of the Saule Gomoku AI, running playouts on every processor.
+	 * 
+	 * @param seconds The time budget for each move.
+	 */
+	public Saule(double seconds) {
+		this(seconds, Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * Creates a new instance of the Saule Gomoku AI.
+	 */
+	public Saule() {
+		this(1.0);
+	}
+	
+	/**
+	 * Returns how many playouts were run per second for the last move.
+	 * 
+	 * @return The number of playouts per second, over every thread.
+	 */
+	public double getPlayoutsPerSecond() {
+		if (this.elapsed <= 0.0) {
+			return (0.0);
+		}
+		return ((double)this.playouts / this.elapsed);
+	}
+	
+	/* --------- *
+	 * Selection *
+	 * --------- */
+	
+	/**
+	 * Adds a child for every legal move of a node.
+	 * The children are shuffled, so threads and unvisited moves are not biased towards the top of the board.
+	 * 
+	 * @param node The node to expand.
+	 * @param board The game at the position of the node.
+	 * @param moves A buffer that fits every cell of the board.
+	 * @param rng The random number generator of the thread.
+	 */
+	private static void expand(Node node, Gomoku board, int[] moves, Random rng) {
+		int value = (node.value % Gomoku.PLAYER_COUNT) + 1;
+		int count = (board.getWinner() == 0) ? board.getCandidateMoves(value, moves) : 0;
+		
+		for (int i = count - 1; i > 0; i--) {
+			int j = rng.nextInt(i + 1);
+			int move = moves[i];
+			moves[i] = moves[j];
+			moves[j] = move;
+		}
+		
+		Node[] children = new Node[count];
+		for (int i = 0; i < count; i++) {
+			children[i] = new Node(node, moves[i], value);
+		}
+		node.children = children;
+	}
+	
+	/**
+	 * Chooses the child of a node to explore with UCT, counting virtual losses as lost visits.
+	 * 
+	 * @param node The node to choose from, it must be expanded.
+	 * @return The chosen child, or null if the node has none.
+	 */
+	private static Node select(Node node) {
+		Node best = null;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		double log = Math.log(Math.max(node.visits + node.virtual, 1));
+		
+		for (Node child : node.children) {
+			int visits = child.visits + child.virtual;
+			if (visits == 0) {
+				return (child);
+			}
+			
+			double value = ((double)child.score / (2.0 * visits)) + (EXPLORATION * Math.sqrt(log / visits));
+			if (value > bestValue) {
+				best = child;
+				bestValue = value;
+			}
+		}
+		return (best);
+	}
+	
+	/* -------- *
+	 * Playouts *
+	 * -------- */
+	
+	private static final int PLAYOUT_LIMIT = 150;
+	private static final int PLAYOUT_SAMPLES = 3;
+	private static final int SAMPLE_ATTEMPTS = 64;
+	
+	/**
+	 * Picks a random legal move near the existing tokens.
+	 * 
+	 * @param board The game to move in.
+	 * @param value The value of the player to move.
+	 * @param moves A buffer that fits every cell of the board.
+	 * @param rng The random number generator of the thread.
+	 * @return The cell index of the move, or -1 if there is no legal move.
+	 */
+	private static int sampleMove(Gomoku board, int value, int[] moves, Random rng) {
+		// Most of the board is far from any token, so guess a few times before listing every move
+		for (int i = 0; i < SAMPLE_ATTEMPTS; i++) {
+			int cell = rng.nextInt(CELL_COUNT);
+			int x = cell % Gomoku.BOARD_LENGTH;
+			int y = cell / Gomoku.BOARD_LENGTH;
+			if (board.isCandidate(x, y) && board.isLegalMove(x, y, value)) {
+				return (cell);
+			}
+		}
+		
+		int count = board.getCandidateMoves(value, moves);
+		if (count == 0) {
+			return (-1);
+		}
+		return (moves[rng.nextInt(count)]);
+	}
+	
+	/**
+	 * Picks the move of a playout, out of a few random moves the one capturing the most tokens.
+	 * A capture that wins the game is always taken.
+	 * 
+	 * @param board The game to move in.
+	 * @param value The value of the player to move.
+	 * @param moves A buffer that fits every cell of the board.
+	 * @param rng The random number generator of the thread.
+	 * @return The cell index of the move, or -1 if there is no legal move.
+	 */
+	private static int playoutMove(Gomoku board, int value, int[] moves, Random rng) {
+		int best = -1;
+		int bestCaptures = -1;
+		for (int i = 0; i < PLAYOUT_SAMPLES; i++) {
+			int cell = Saule.sampleMove(board, value, moves, rng);
+			if (cell < 0) {
+				break;
+			}
+			
+			int captures = board.countCaptures(cell % Gomoku.BOARD_LENGTH, cell / Gomoku.BOARD_LENGTH, value);
+			if ((board.getCaptureCount(value) + captures) >= Gomoku.CAPTURES_TO_WIN) {
+				return (cell);
+			}
+			if (captures > bestCaptures) {
+				best = cell;
+				bestCaptures = captures;
+			}
+		}
+		return (best);
+	}
+	
+	/**
+	 * Plays random moves until the game is decided, then takes them back.
+	 * 
+	 * @param board The game to play in.
+	 * @param value The value of the player to move.
+	 * @param moves A buffer that fits every cell of the board.
+	 * @param rng The random number generator of the thread.
+	 * @return The value of the winner, or 0 if the playout ended in a draw.
+	 */
+	private static int playout(Gomoku board, int value, int[] moves, Random rng) {
+		int made = 0;
+		while ((board.getWinner() == 0) && (made < PLAYOUT_LIMIT)) {
+			int cell = Saule.playoutMove(board, value, moves, rng);
+			if (cell < 0) {
+				break;
+			}
+			board.makeMove(cell % Gomoku.BOARD_LENGTH, cell / Gomoku.BOARD_LENGTH, value);
+			made++;
+			value = (value % Gomoku.PLAYER_COUNT) + 1;
+		}
+		
+		int winner = board.getWinner();
+		for (int i = 0; i < made; i++) {
+			board.unmakeMove();
+		}
+		return (winner);
+	}
+	
+	/**
+	 * Runs one playout: selects a leaf, plays the game out from it and backs up the result.
+	 * 
+	 * @param board The game of the thread, at the position of the root.
+	 * @param moves A buffer that fits every cell of the board.
+	 * @param rng The random number generator of the thread.
+	 */
+	private void iterate(Gomoku board, int[] moves, Random rng) {
+		Node node = this.root;
+		int depth = 0;
+		
+		synchronized (this.root) {
+			while (true) {
+				if (node.children == null) {
+					Saule.expand(node, board, moves, rng);
+				}
+				
+				Node child = Saule.select(node);
+				if (child == null) {
+					break;
+				}
+				
+				boolean leaf = ((child.visits + child.virtual) == 0);
+				child.virtual += VIRTUAL_LOSS;
+				board.makeMove(child.move % Gomoku.BOARD_LENGTH, child.move / Gomoku.BOARD_LENGTH, child.value);
+				node = child;
+				depth++;
+				
+				if (leaf) {
+					break;
+				}
+			}
+			this.reached = Math.max(this.reached, depth);
+		}
+		
+		int winner = Saule.playout(board, (node.value % Gomoku.PLAYER_COUNT) + 1, moves, rng);
+		
+		synchronized (this.root) {
+			for (Node n = node; n != null; n = n.parent) {
+				n.visits++;
+				if (n.parent != null) {
+					n.virtual -= VIRTUAL_LOSS;
+				}
+				if (winner == 0) {
+					n.score += 1;
+				}
+				else if (winner == n.value) {
+					n.score += 2;
+				}
+			}
+			this.playouts++;
+		}
+		
+		for (int i = 0; i < depth; i++) {
+			board.unmakeMove();
+		}
+	}
+	
+	/**
+	 * Runs playouts on every thread until the time budget runs out.
+	 */
+	private void search() {
+		List<Future<?>> futures = new ArrayList<Future<?>>(this.threads);
+		for (int i = 0; i < this.threads; i++) {
+			final Gomoku board = this.boards[i];
+			futures.add(this.executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() {
+					int[] moves = new int[CELL_COUNT];
+					Random rng = new Random();
+					// The threat search may have used up the budget, the root still needs its moves
+					do {
+						Saule.this.iterate(board, moves, rng);
+					}
+					while (System.nanoTime() < Saule.this.deadline);
+					return (null);
+				}
+			}));
+		}
+		
+		try {
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+	}
+	
+	/**
+	 * Finds the most visited move of the root.
+	 * 
+	 * @return The cell index of the move, or -1 if the root has no moves.
+	 */
+	private int bestMove() {
+		Node best = null;
+		if (this.root.children != null) {
+			for (Node child : this.root.children) {
+				if ((best == null) || (child.visits > best.visits)) {
+					best = child;
+				}
+			}
+		}
+		return ((best == null) ? -1 : best.move);
+	}
+	
+	/* ----------------- *
+	 * Player Controller *
+	 * ----------------- */
+	
+	@Override
+	public String name(Gomoku game, int value) {
+		return ("Saule");
+	}
+	
+	@Override
+	public void report(Gomoku game, String message) {
+		System.err.println("[Saule] " + message);
+	}
+	
+	@Override
+	public void informChange(Gomoku game, int x, int y, int value) { }
+	
+	@Override
+	public void informWinner(Gomoku game, int value) { }
+	
+	@Override
+	public boolean getMove(Gomoku game, int value, long key) {
+		long start = System.nanoTime();
+		
+		if (this.executor == null) {
+			this.executor = Executors.newFixedThreadPool(this.threads, DAEMON_FACTORY);
+		}
+		if (this.game != game) {
+			PlayerController[] players = new PlayerController[Gomoku.PLAYER_COUNT];
+			for (int i = 0; i < Gomoku.PLAYER_COUNT; i++) {
+				players[i] = game.getPlayerController(i + 1);
+			}
+			for (int i = 0; i < this.threads; i++) {
+				this.boards[i] = game.clone(null, players);
+			}
+			this.game = game;
+		}
+		else {
+			for (int i = 0; i < this.threads; i++) {
+				this.boards[i].cloneOf(game);
+			}
+		}
+		
+		this.reached = 0;
+		this.playouts = 0;
+		int move = this.threats.findVCF(this.boards[0], value);
+		if (move < 0) {
+			this.root = new Node(null, -1, (value % Gomoku.PLAYER_COUNT) + 1);
+			this.deadline = start + this.budget;
+			this.search();
+			
+			move = this.bestMove();
+			this.root = null;
+		}
+		
+		this.elapsed = (double)(System.nanoTime() - start) / 1000000000.0;
+		if (move < 0) {
+			return (false);
+		}
+		game.submitMove(move % Gomoku.BOARD_LENGTH, move / Gomoku.BOARD_LENGTH, key);
+		return (true);
+	}
+	
+	@Override
+	public void gameStart(Gomoku game, int value) { }
+	
+	@Override
+	public void gameEnd(Gomoku game) {
+		if (this.executor != null) {
+			this.executor.shutdownNow();
+			this.executor = null;
+		}
+		this.game = null;
+	}
+	
+	@Override
+	public double getTimeElapsed() {
+		return (this.elapsed);
+	}
+	
+	@Override
+	public int getDepthReached() {
+		return (this.reached);
+	}
+	
+	@Override
+	public long getNodeCount() {
+		return (this.playouts);
+	}
+}
@@ -0,0 +1,475 @@
+package org.us._42.laphicet.gomoku.ai;
+
+import org.us._42.laphicet.gomoku.Gomoku;
+import org.us._42.laphicet.gomoku.Gomoku.Alignment;
+import org.us._42.laphicet.gomoku.LinePatterns;
+
+/**
+ * A threat-space search looking for forced wins, meant to be run before a full search.
+ * 
+ * The attacker only plays threats: fours, which must be answered or lose to a five, and for
+ * a victory by continuous threats also free threes. The defender only tries the answers that
+ * can stop a threat: blocking it, capturing, making a five of their own, preparing a capture of
+ * the threatening tokens and, against a three, making a four of their own.
+ * A five only counts as a win if the defender cannot break it with a capture, and a capture
+ * reaching CAPTURES_TO_WIN wins on the spot, just like the game decides.
+ * 
+ * The search plays on the given game with {@link Gomoku#makeMove(int, int, int)} and
+ * {@link Gomoku#unmakeMove()}, and leaves it as it was found.
+ */
+public class ThreatSearch {
+	private static final int CELL_COUNT = Gomoku.BOARD_LENGTH * Gomoku.BOARD_LENGTH;
+	private static final int MAX_DEPTH = 32;
+	
+	private int depth;
+	private long nodeLimit;
+	
+	private Gomoku board = null;
+	private int attacker = 0;
+	private int defender = 0;
+	private boolean threes = false;
+	
+	private long nodes = 0;
+	private boolean aborted = false;
+	
+	private int[][] moves = new int[(MAX_DEPTH * 2) + 2][CELL_COUNT];
+	private int[] scratch = new int[CELL_COUNT];
+	private int[] marks = new int[CELL_COUNT];
+	private int mark = 0;
+	
+	/**
+	 * Creates a new threat-space search.
+	 * 
+	 * @param depth The maximum number of threats the attacker may play.
+	 * @param nodeLimit The maximum number of positions to visit in one search.
+	 */
+	public ThreatSearch(int depth, long nodeLimit) {
+		this.depth = Math.max(1, Math.min(depth, MAX_DEPTH));
+		this.nodeLimit = nodeLimit;
+	}
+	
+	/**
+	 * Creates a new threat-space search.
+	 */
+	public ThreatSearch() {
+		this(12, 4000);
+	}
+	
+	/**
+	 * Looks for a victory by continuous fours.
+	 * 
+	 * @param game The game to search, the attacker is assumed to be the player to move.
+	 * @param value The value of the attacker.
+	 * @return The cell index of the first move of a forced win, or {@link TranspositionTable#NO_MOVE}.
+	 */
+	public int findVCF(Gomoku game, int value) {
+		return (this.search(game, value, false));
+	}
+	
+	/**
+	 * Looks for a victory by continuous threats, fours and free threes.
+	 * 
+	 * @param game The game to search, the attacker is assumed to be the player to move.
+	 * @param value The value of the attacker.
+	 * @return The cell index of the first move of a forced win, or {@link TranspositionTable#NO_MOVE}.
+	 */
+	public int findVCT(Gomoku game, int value) {
+		return (this.search(game, value, true));
+	}
+	
+	/**
+	 * Returns how many positions the last search visited.
+	 * 
+	 * @return The number of visited positions.
+	 */
+	public long getNodeCount() {
+		return (this.nodes);
+	}
+	
+	/**
+	 * Searches one more threat at a time, so the shortest win is found first.
+	 * 
+	 * @param game The game to search.
+	 * @param value The value of the attacker.
+	 * @param threes Whether or not free threes count as threats.
+	 * @return The cell index of the first move of a forced win, or NO_MOVE.
+	 */
+	private int search(Gomoku game, int value, boolean threes) {
+		if ((game.getWinner() != 0) || (value <= 0) || (value > Gomoku.PLAYER_COUNT)) {
+			return (TranspositionTable.NO_MOVE);
+		}
+		
+		this.board = game;
+		this.attacker = value;
+		this.defender = (value % Gomoku.PLAYER_COUNT) + 1;
+		this.threes = threes;
+		this.nodes = 0;
+		this.aborted = false;
+		
+		int move = TranspositionTable.NO_MOVE;
+		for (int depth = 1; (depth <= this.depth) && (move == TranspositionTable.NO_MOVE) && !(this.aborted); depth++) {
+			move = this.attack(depth, 0);
+		}
+		
+		this.board = null;
+		return (this.aborted ? TranspositionTable.NO_MOVE : move);
+	}
+	
+	/* -------- *
+	 * Patterns *
+	 * -------- */
+	
+	/**
+	 * Checks if placing a token would make a row of ADJACENT_TO_WIN.
+	 * 
+	 * @param x The x coordinate of the empty cell.
+	 * @param y The y coordinate of the empty cell.
+	 * @param value The value of the token.
+	 * @return Whether or not the token would make a five.
+	 */
+	private boolean makesFive(int x, int y, int value) {
+		for (Alignment alignment : Alignment.values()) {
+			if ((this.board.getLinePattern(x, y, value, alignment) & LinePatterns.FIVE) != 0) {
+				return (true);
+			}
+		}
+		return (false);
+	}
+	
+	/**
+	 * Checks if placing a token could make a four, with enough tokens of the same value around it.
+	 * 
+	 * @param x The x coordinate of the empty cell.
+	 * @param y The y coordinate of the empty cell.
+	 * @param value The value of the token.
+	 * @return Whether or not the cell is worth trying as a four.
+	 */
+	private boolean couldMakeFour(int x, int y, int value) {
+		for (Alignment alignment : Alignment.values()) {
+			int count = 0;
+			for (int i = -(Gomoku.ADJACENT_TO_WIN - 1); i < Gomoku.ADJACENT_TO_WIN; i++) {
+				if ((i != 0) && (this.board.getToken(x + (alignment.dx * i), y + (alignment.dy * i)) == value)) {
+					count++;
+				}
+			}
+			if (count >= (Gomoku.ADJACENT_TO_WIN - 2)) {
+				return (true);
+			}
+		}
+		return (false);
+	}
+	
+	/**
+	 * Gets the alignments in which placing a token would make a free three.
+	 * 
+	 * @param x The x coordinate of the empty cell.
+	 * @param y The y coordinate of the empty cell.
+	 * @param value The value of the token.
+	 * @return A mask of the alignments, by ordinal.
+	 */
+	private int getThrees(int x, int y, int value) {
+		int threes = 0;
+		for (Alignment alignment : Alignment.values()) {
+			if (this.board.createsFreeThree(x, y, value, alignment)) {
+				threes |= (1 << alignment.ordinal());
+			}
+		}
+		return (threes);
+	}
+	
+	/**
+	 * Gets the alignments in which a placed token threatens to make a five on the next move.
+	 * 
+	 * @param x The x coordinate of the placed token.
+	 * @param y The y coordinate of the placed token.
+	 * @param value The value of the placed token.
+	 * @return A mask of the alignments, by ordinal.
+	 */
+	private int getFours(int x, int y, int value) {
+		int fours = 0;
+		for (Alignment alignment : Alignment.values()) {
+			for (int i = -(Gomoku.ADJACENT_TO_WIN - 1); i < Gomoku.ADJACENT_TO_WIN; i++) {
+				int cx = x + (alignment.dx * i);
+				int cy = y + (alignment.dy * i);
+				if ((this.board.getToken(cx, cy) == 0) && ((this.board.getLinePattern(cx, cy, value, alignment) & LinePatterns.FIVE) != 0) &&
+					this.board.isLegalMove(cx, cy, value)) {
+					fours |= (1 << alignment.ordinal());
+					break;
+				}
+			}
+		}
+		return (fours);
+	}
+	
+	/* ------ *
+	 * Attack *
+	 * ------ */
+	
+	/**
+	 * Checks if the defender can break a five that was just made, by capturing part of it.
+	 * The defender is to move.
+	 * 
+	 * @return Whether or not the five wins.
+	 */
+	private boolean fiveStands() {
+		int count = this.board.getCandidateMoves(this.defender, this.scratch);
+		for (int i = 0; i < count; i++) {
+			int x = this.scratch[i] % Gomoku.BOARD_LENGTH;
+			int y = this.scratch[i] / Gomoku.BOARD_LENGTH;
+			if (this.board.countCaptures(x, y, this.defender) == 0) {
+				continue;
+			}
+			
+			// Any other move leaves the five, which then wins
+			this.board.makeMove(x, y, this.defender);
+			boolean stands = (this.board.getWinner() == this.attacker);
+			this.board.unmakeMove();
+			if (!stands) {
+				return (false);
+			}
+		}
+		return (true);
+	}
+	
+	/**
+	 * Checks if the attacker wins by playing a move right away, with a capture or a five that stands.
+	 * 
+	 * @param x The x coordinate of the move.
+	 * @param y The y coordinate of the move.
+	 * @return Whether or not the move wins.
+	 */
+	private boolean winsAt(int x, int y) {
+		if ((this.board.getCaptureCount(this.attacker) + this.board.countCaptures(x, y, this.attacker)) >= Gomoku.CAPTURES_TO_WIN) {
+			return (true);
+		}
+		if (!(this.makesFive(x, y, this.attacker))) {
+			return (false);
+		}
+		
+		this.board.makeMove(x, y, this.attacker);
+		boolean win = (this.board.getWinner() == this.attacker) || ((this.board.getWinner() == 0) && this.fiveStands());
+		this.board.unmakeMove();
+		return (win);
+	}
+	
+	/**
+	 * Looks for a threat that wins against every defence, the attacker is to move.
+	 * 
+	 * @param depth The number of threats the attacker may still play.
+	 * @param ply The distance from the root, in moves.
+	 * @return The cell index of the winning move, or NO_MOVE.
+	 */
+	private int attack(int depth, int ply) {
+		int[] moves = this.moves[ply];
+		int count = this.board.getCandidateMoves(this.attacker, moves);
+		
+		for (int i = 0; i < count; i++) {
+			if (this.winsAt(moves[i] % Gomoku.BOARD_LENGTH, moves[i] / Gomoku.BOARD_LENGTH)) {
+				return (moves[i]);
+			}
+		}
+		if ((depth <= 0) || (ply >= (this.moves.length - 2))) {
+			return (TranspositionTable.NO_MOVE);
+		}
+		
+		for (int i = 0; i < count; i++) {
+			int x = moves[i] % Gomoku.BOARD_LENGTH;
+			int y = moves[i] / Gomoku.BOARD_LENGTH;
+			
+			int threes = this.threes ? this.getThrees(x, y, this.attacker) : 0;
+			if ((threes == 0) && !(this.couldMakeFour(x, y, this.attacker))) {
+				continue;
+			}
+			if (++this.nodes > this.nodeLimit) {
+				this.aborted = true;
+				return (TranspositionTable.NO_MOVE);
+			}
+			
+			this.board.makeMove(x, y, this.attacker);
+			boolean win = false;
+			if (this.board.getWinner() == this.attacker) {
+				win = true;
+			}
+			else if (this.board.getWinner() == 0) {
+				int fours = this.getFours(x, y, this.attacker);
+				if (fours != 0) {
+					win = this.defend(depth, ply + 1, x, y, fours, true);
+				}
+				else if (threes != 0) {
+					win = this.defend(depth, ply + 1, x, y, threes, false);
+				}
+			}
+			this.board.unmakeMove();
+			
+			if (win) {
+				return (moves[i]);
+			}
+			if (this.aborted) {
+				return (TranspositionTable.NO_MOVE);
+			}
+		}
+		return (TranspositionTable.NO_MOVE);
+	}
+	
+	/* ------- *
+	 * Defence *
+	 * ------- */
+	
+	/**
+	 * Adds a defence to the list, unless it is already in it or the defender may not play it.
+	 * 
+	 * @param defences The list of defences.
+	 * @param count The number of defences in the list.
+	 * @param x The x coordinate of the defence.
+	 * @param y The y coordinate of the defence.
+	 * @return The new number of defences in the list.
+	 */
+	private int addDefence(int[] defences, int count, int x, int y) {
+		if ((x < 0) || (x >= Gomoku.BOARD_LENGTH) || (y < 0) || (y >= Gomoku.BOARD_LENGTH)) {
+			return (count);
+		}
+		int cell = (y * Gomoku.BOARD_LENGTH) + x;
+		if ((this.marks[cell] == this.mark) || !(this.board.isLegalMove(x, y, this.defender))) {
+			return (count);
+		}
+		this.marks[cell] = this.mark;
+		defences[count] = cell;
+		return (count + 1);
+	}
+	
+	/**
+	 * Checks if placing a defending token would let the defender capture a token of the threat next move.
+	 * 
+	 * @param x The x coordinate of the defending token.
+	 * @param y The y coordinate of the defending token.
+	 * @param alignment The alignment the capture would be in.
+	 * @return Whether or not the token prepares a capture.
+	 */
+	private boolean preparesCapture(int x, int y, Alignment alignment) {
+		this.board.makeMove(x, y, this.defender);
+		boolean danger = false;
+		for (int i = -2; (i <= 2) && !danger; i++) {
+			int sx = x + (alignment.dx * i);
+			int sy = y + (alignment.dy * i);
+			if ((i != 0) && (this.board.getToken(sx, sy) == this.attacker)) {
+				danger = this.board.isInDanger(sx, sy, this.attacker, alignment);
+			}
+		}
+		this.board.unmakeMove();
+		return (danger);
+	}
+	
+	/**
+	 * Lists the moves that could stop a threat.
+	 * 
+	 * @param defences The array to store the defences in.
+	 * @param x The x coordinate of the threat.
+	 * @param y The y coordinate of the threat.
+	 * @param alignments The alignments of the threat, by ordinal.
+	 * @param four Whether the threat is a four, or else a free three.
+	 * @return The number of defences.
+	 */
+	private int collectDefences(int[] defences, int x, int y, int alignments, boolean four) {
+		this.mark++;
+		int count = 0;
+		
+		// Blocking the threat, on the cells of its lines
+		for (Alignment alignment : Alignment.values()) {
+			if ((alignments & (1 << alignment.ordinal())) == 0) {
+				continue;
+			}
+			for (int i = -(Gomoku.ADJACENT_TO_WIN - 1); i < Gomoku.ADJACENT_TO_WIN; i++) {
+				int cx = x + (alignment.dx * i);
+				int cy = y + (alignment.dy * i);
+				if (this.board.getToken(cx, cy) != 0) {
+					continue;
+				}
+				// A four can only be blocked where it would become a five
+				if (!four || ((this.board.getLinePattern(cx, cy, this.attacker, alignment) & LinePatterns.FIVE) != 0)) {
+					count = this.addDefence(defences, count, cx, cy);
+				}
+			}
+		}
+		
+		// Captures and fives of the defender's own, and fours against a three
+		int candidates = this.board.getCandidateMoves(this.defender, this.scratch);
+		for (int i = 0; i < candidates; i++) {
+			int cx = this.scratch[i] % Gomoku.BOARD_LENGTH;
+			int cy = this.scratch[i] / Gomoku.BOARD_LENGTH;
+			if ((this.board.countCaptures(cx, cy, this.defender) > 0) || this.makesFive(cx, cy, this.defender)) {
+				count = this.addDefence(defences, count, cx, cy);
+			}
+			else if (!four && this.couldMakeFour(cx, cy, this.defender)) {
+				this.board.makeMove(cx, cy, this.defender);
+				boolean counter = (this.board.getWinner() == 0) && (this.getFours(cx, cy, this.defender) != 0);
+				this.board.unmakeMove();
+				if (counter) {
+					count = this.addDefence(defences, count, cx, cy);
+				}
+			}
+		}
+		
+		// Preparing a capture of one of the threatening tokens
+		for (Alignment line : Alignment.values()) {
+			if ((alignments & (1 << line.ordinal())) == 0) {
+				continue;
+			}
+			for (int i = -(Gomoku.ADJACENT_TO_WIN - 1); i < Gomoku.ADJACENT_TO_WIN; i++) {
+				int sx = x + (line.dx * i);
+				int sy = y + (line.dy * i);
+				if (this.board.getToken(sx, sy) != this.attacker) {
+					continue;
+				}
+				for (Alignment alignment : Alignment.values()) {
+					for (int j = -2; j <= 2; j++) {
+						int cx = sx + (alignment.dx * j);
+						int cy = sy + (alignment.dy * j);
+						if ((j != 0) && (this.board.getToken(cx, cy) == 0) && (this.marks[(cy * Gomoku.BOARD_LENGTH) + cx] != this.mark) &&
+							this.preparesCapture(cx, cy, alignment)) {
+							count = this.addDefence(defences, count, cx, cy);
+						}
+					}
+				}
+			}
+		}
+		return (count);
+	}
+	
+	/**
+	 * Checks if every defence against a threat still loses, the defender is to move.
+	 * 
+	 * @param depth The number of threats the attacker may still play, including the one being defended.
+	 * @param ply The distance from the root, in moves.
+	 * @param x The x coordinate of the threat.
+	 * @param y The y coordinate of the threat.
+	 * @param alignments The alignments of the threat, by ordinal.
+	 * @param four Whether the threat is a four, or else a free three.
+	 * @return Whether or not the attacker wins whatever the defender does.
+	 */
+	private boolean defend(int depth, int ply, int x, int y, int alignments, boolean four) {
+		int[] defences = this.moves[ply];
+		int count = this.collectDefences(defences, x, y, alignments, four);
+		
+		for (int i = 0; i < count; i++) {
+			if (++this.nodes > this.nodeLimit) {
+				this.aborted = true;
+				return (false);
+			}
+			
+			this.board.makeMove(defences[i] % Gomoku.BOARD_LENGTH, defences[i] / Gomoku.BOARD_LENGTH, this.defender);
+			boolean win;
+			if (this.board.getWinner() != 0) {
+				win = (this.board.getWinner() == this.attacker);
+			}
+			else {
+				win = (this.attack(depth - 1, ply + 1) != TranspositionTable.NO_MOVE);
+			}
+			this.board.unmakeMove();
+			
+			if (!win) {
+				return (false);
+			}
+		}
+		return (true);
+	}
+}
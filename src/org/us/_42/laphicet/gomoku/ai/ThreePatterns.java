@@ -0,0 +1,150 @@
+package org.us._42.laphicet.gomoku.ai;
+
+import org.us._42.laphicet.gomoku.Gomoku;
+import org.us._42.laphicet.gomoku.Gomoku.Alignment;
+import org.us._42.laphicet.gomoku.LinePatterns;
+
+/**
+ * The engine's free three rule applied to a board of an AI's own, such as a predicted position,
+ * so double threes can be found without a {@link Gomoku} holding the position.
+ * 
+ * A window is built around the cell in the layout of {@link LinePatterns}, and its FREE_THREE flag
+ * is checked for captured empty cells the same way {@link Gomoku#createsDoubleThree(int, int, int)} does,
+ * so the answers are always those of the rules.
+ */
+public class ThreePatterns {
+	private static final Alignment[] ALIGNMENTS = Alignment.values();
+	
+	/**
+	 * Gets a token of a board.
+	 * 
+	 * @param board The tokens of the board, by cell index (y * BOARD_LENGTH) + x.
+	 * @param x The x coordinate of the cell.
+	 * @param y The y coordinate of the cell.
+	 * @return The value of the token, 0 for an empty cell or -1 for a cell off the board.
+	 */
+	private static int getToken(int[] board, int x, int y) {
+		if ((x < 0) || (x >= Gomoku.BOARD_LENGTH) || (y < 0) || (y >= Gomoku.BOARD_LENGTH)) {
+			return (-1);
+		}
+		return (board[(y * Gomoku.BOARD_LENGTH) + x]);
+	}
+	
+	/**
+	 * Builds the index of the window around a cell of a board, see {@link LinePatterns}.
+	 * 
+	 * @param board The tokens of the board, by cell index (y * BOARD_LENGTH) + x.
+	 * @param x The x coordinate of the cell.
+	 * @param y The y coordinate of the cell.
+	 * @param value The value of the player.
+	 * @param alignment The line to build the window along.
+	 * @return The index of the window.
+	 */
+	public static int index(int[] board, int x, int y, int value, Alignment alignment) {
+		int index = 0;
+		for (int i = -LinePatterns.WINDOW; i <= LinePatterns.WINDOW; i++) {
+			if (i == 0) {
+				continue;
+			}
+			
+			int bit = (i < 0) ? (i + LinePatterns.WINDOW) : (i + LinePatterns.WINDOW - 1);
+			int token = getToken(board, x + (alignment.dx * i), y + (alignment.dy * i));
+			if (token < 0) {
+				index |= (1 << bit) | (1 << (bit + 8));
+			}
+			else if (token == value) {
+				index |= 1 << bit;
+			}
+			else if (token != 0) {
+				index |= 1 << (bit + 8);
+			}
+		}
+		return (index);
+	}
+	
+	/**
+	 * Checks if placing a token would put it in a state of capture, as {@link Gomoku#isCaptured(int, int, int)} does.
+	 * 
+	 * @param board The tokens of the board, by cell index (y * BOARD_LENGTH) + x.
+	 * @param x The x coordinate of the token.
+	 * @param y The y coordinate of the token.
+	 * @param value The value of the token.
+	 * @return Whether or not placing the token would put it in a state of capture.
+	 */
+	private static boolean isCaptured(int[] board, int x, int y, int value) {
+		for (Alignment alignment : ALIGNMENTS) {
+			int prev = getToken(board, x - alignment.dx, y - alignment.dy);
+			int next = getToken(board, x + alignment.dx, y + alignment.dy);
+			
+			if ((prev == value) && (next != value) && (next > 0)) {
+				if (getToken(board, x - (alignment.dx * 2), y - (alignment.dy * 2)) == next) {
+					return (true);
+				}
+			}
+			else if ((next == value) && (prev != value) && (prev > 0)) {
+				if (getToken(board, x + (alignment.dx * 2), y + (alignment.dy * 2)) == prev) {
+					return (true);
+				}
+			}
+		}
+		return (false);
+	}
+	
+	/**
+	 * Checks if placing a token forms a free three along an alignment.
+	 * 
+	 * @param board The tokens of the board, by cell index (y * BOARD_LENGTH) + x.
+	 * @param x The x coordinate of the token.
+	 * @param y The y coordinate of the token.
+	 * @param value The value of the token.
+	 * @param alignment The alignment to check.
+	 * @return Whether or not the token forms a free three along this alignment.
+	 */
+	public static boolean isFreeThree(int[] board, int x, int y, int value, Alignment alignment) {
+		int flags = LinePatterns.get(index(board, x, y, value, alignment));
+		if ((flags & LinePatterns.FREE_THREE) == 0) {
+			return (false);
+		}
+		
+		// An empty cell in a capture breaks the three, the rules check for it on the cells ahead
+		int checks = (flags & LinePatterns.CHECK_MASK) >>> LinePatterns.CHECK_SHIFT;
+		for (int i = 1; checks != 0; i++, checks >>>= 1) {
+			if (((checks & 1) != 0) && isCaptured(board, x + (alignment.dx * i), y + (alignment.dy * i), value)) {
+				return (false);
+			}
+		}
+		return (true);
+	}
+	
+	/**
+	 * Counts the alignments along which placing a token forms a free three.
+	 * 
+	 * @param board The tokens of the board, by cell index (y * BOARD_LENGTH) + x.
+	 * @param x The x coordinate of the token.
+	 * @param y The y coordinate of the token.
+	 * @param value The value of the token.
+	 * @return The number of free threes formed.
+	 */
+	public static int countThrees(int[] board, int x, int y, int value) {
+		int threes = 0;
+		for (Alignment alignment : ALIGNMENTS) {
+			if (isFreeThree(board, x, y, value, alignment)) {
+				threes++;
+			}
+		}
+		return (threes);
+	}
+	
+	/**
+	 * Checks if placing a token forms two free threes or more.
+	 * 
+	 * @param board The tokens of the board, by cell index (y * BOARD_LENGTH) + x.
+	 * @param x The x coordinate of the token.
+	 * @param y The y coordinate of the token.
+	 * @param value The value of the token.
+	 * @return Whether or not the token forms a double three.
+	 */
+	public static boolean createsDoubleThree(int[] board, int x, int y, int value) {
+		return (countThrees(board, x, y, value) >= 2);
+	}
+}
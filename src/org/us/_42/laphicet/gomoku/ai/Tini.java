@@ -2,21 +2,21 @@ package org.us._42.laphicet.gomoku.ai;
 
 import java.security.SecureRandom;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Random;
-import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.us._42.laphicet.gomoku.Gomoku;
 import org.us._42.laphicet.gomoku.Gomoku.Alignment;
 import org.us._42.laphicet.gomoku.PlayerController;
+import org.us._42.laphicet.gomoku.ai.Weights.Weight;
 
-public class Tini implements PlayerController, AIController {
+public class Tini implements PlayerController, AIController, Tunable {
 	private static final PlayerController NULL_CONTROLLER = new PlayerController() {
 		@Override public String name(Gomoku game, int value) { return ("(null)"); }
 		@Override public void report(Gomoku game, String message) { }
@@ -31,18 +31,26 @@ public class Tini implements PlayerController, AIController {
 	private int value = 1;
 	
 	private Random rng = new SecureRandom();
-	private Set<Long> tokens = new HashSet<Long>();
+	private CellMap tokens = new CellMap();
 	
 	private int x = -1;
 	private int y = -1;
 	private int priority = 0;
 	
 	private double elapsed = 0.0;
+	private long positions = 0;
 	
 	private static class TreeNode {
-		private Gomoku game;
 		private TreeNode[] nodes;
 		
+		// The move that led to this node, and the winner once the next player answered it, kept apart from the games that get reused
+		private int cell = -1;
+		private int winner = 0;
+		
+		// Chances already known from the shared table, -1 when they have to be calculated
+		private float win = -1.0f;
+		private float lose = -1.0f;
+		
 		private TreeNode(int length) {
 			this.nodes = new TreeNode[length];
 		}
@@ -50,7 +58,10 @@ public class Tini implements PlayerController, AIController {
 		@Override
 		public TreeNode clone() {
 			TreeNode node = new TreeNode(this.nodes.length);
-			node.game = this.game;
+			node.cell = this.cell;
+			node.winner = this.winner;
+			node.win = this.win;
+			node.lose = this.lose;
 			
 			for (int i = 0; i < node.nodes.length; i++) {
 				if (this.nodes[i] != null) {
@@ -62,13 +73,51 @@ public class Tini implements PlayerController, AIController {
 			}
 			return (node);
 		}
+		
+		/**
+		 * Finds the branch of this node that follows a move.
+		 * 
+		 * @param cell The cell index of the move.
+		 * @return The branch of this node, or null if the move was not searched.
+		 */
+		private TreeNode find(int cell) {
+			for (TreeNode node : this.nodes) {
+				if ((node != null) && (node.cell == cell)) {
+					return (node);
+				}
+			}
+			return (null);
+		}
+		
+		/**
+		 * Checks if none of the branches of this node were searched.
+		 * 
+		 * @return Whether or not this node ends its tree.
+		 */
+		private boolean isLeaf() {
+			for (TreeNode node : this.nodes) {
+				if (node != null) {
+					return (false);
+				}
+			}
+			return (true);
+		}
 	}
 	
 	private TreeNode node;
 	
-	private Map<Long,Integer> moves = new HashMap<Long,Integer>();
+	// The part of the last tree that is still ahead of the game, and the moves played since
+	private TreeNode reuse = null;
+	private int[] played = new int[Gomoku.PLAYER_COUNT];
+	private int playedCount = 0;
+	
+	// The moves considered for the current position by cell, and room to sort them for the predictions
+	private CellMap moves = new CellMap();
+	private int[] order = new int[CellMap.CELL_COUNT];
+	private int[] priorities = new int[CellMap.CELL_COUNT];
 	private int depth;
 	private boolean minimax;
+	private Weights weights = Weights.DEFAULT;
 	
 	/**
 	 * Creates a new instance of the Tini Gomoku AI.
@@ -76,10 +125,12 @@ public class Tini implements PlayerController, AIController {
 	 * @param moves The number of moves to consider at each step.
 	 * @param depth How many turns to consider before making a decision.
 	 * @param minimax Whether or not to use minimax calculations.
+	 * @param threads The number of threads to search with, see {@link #evaluateInParallel()}.
 	 */
-	public Tini(int moves, int depth, boolean minimax) {
+	public Tini(int moves, int depth, boolean minimax, int threads) {
 		this.depth = depth;
 		this.minimax = minimax;
+		this.threads = Math.max(threads, 1);
 		
 		if ((moves > 1) && (depth > 0)) {
 			this.node = new TreeNode(moves);
@@ -87,6 +138,21 @@ public class Tini implements PlayerController, AIController {
 		else {
 			this.node = new TreeNode(0);
 		}
+		
+		if ((this.threads > 1) && (this.node.nodes.length > 1)) {
+			this.table = new TranspositionTable(TABLE_MEGABYTES);
+		}
+	}
+	
+	/**
+	 * Creates a new instance of the Tini Gomoku AI.
+	 * 
+	 * @param moves The number of moves to consider at each step.
+	 * @param depth How many turns to consider before making a decision.
+	 * @param minimax Whether or not to use minimax calculations.
+	 */
+	public Tini(int moves, int depth, boolean minimax) {
+		this(moves, depth, minimax, 1);
 	}
 	
 	/**
@@ -115,6 +181,21 @@ public class Tini implements PlayerController, AIController {
 	private PlayerController[] controllers = null;
 	private Gomoku[] games = null;
 	
+	// The players searching the ends of a kept branch, by value and depth
+	private Tini[] searchers = null;
+	private Gomoku[] searchGames = null;
+	
+	/**
+	 * Packs the chances of a branch into a score for the shared table.
+	 * 
+	 * @param win The chance of winning.
+	 * @param lose The chance of losing.
+	 * @return The packed chances, in hundredths of a percent.
+	 */
+	private static int packChances(float win, float lose) {
+		return ((Math.round(win * 100.0f) << 16) | Math.round(lose * 100.0f));
+	}
+	
 	/**
 	 * Evaluates how likely we are to win if we use the strategy that built this node.
 	 * 
@@ -122,8 +203,11 @@ public class Tini implements PlayerController, AIController {
 	 * @return The chance of winning.
 	 */
 	private float chanceOfWinning(TreeNode node) {
-		if (node.game.getWinner() != 0) {
-			if (node.game.getWinner() == this.value) {
+		if (node.win >= 0.0f) {
+			return (node.win);
+		}
+		if (node.winner != 0) {
+			if (node.winner == this.value) {
 				return (100.0f);
 			}
 			else {
@@ -152,8 +236,11 @@ public class Tini implements PlayerController, AIController {
 	 * @return The chance of losing.
 	 */
 	private float chanceOfLosing(TreeNode node) {
-		if (node.game.getWinner() != 0) {
-			if (node.game.getWinner() == this.value) {
+		if (node.lose >= 0.0f) {
+			return (node.lose);
+		}
+		if (node.winner != 0) {
+			if (node.winner == this.value) {
 				return (0.0f);
 			}
 			else {
@@ -175,6 +262,90 @@ public class Tini implements PlayerController, AIController {
 		return (total / nodes);
 	}
 	
+	/**
+	 * Releases every branch of the tree.
+	 */
+	private void clearTree() {
+		for (int i = 0; i < this.node.nodes.length; i++) {
+			this.node.nodes[i] = null;
+		}
+	}
+	
+	/**
+	 * Keeps the branch of the last tree that follows the moves played since, if they were all searched.
+	 * 
+	 * @return The branch that matches the current position, or null if the game left the tree.
+	 */
+	private TreeNode findSubtree() {
+		if (this.playedCount != this.played.length) {
+			return (null);
+		}
+		
+		TreeNode node = this.node;
+		for (int cell : this.played) {
+			node = node.find(cell);
+			if (node == null) {
+				return (null);
+			}
+		}
+		return (node);
+	}
+	
+	/**
+	 * Searches the ends of a kept branch further, so that it reaches the depth a new search would give it.
+	 * The positions along the branch are rebuilt by playing its moves on the game, and taken back afterwards.
+	 * 
+	 * @param node The node to search further.
+	 * @param game The game at the position of the node, before the player to move answered it.
+	 * @param depth The depth a new search would give the player to move.
+	 */
+	private void deepen(TreeNode node, Gomoku game, int depth) {
+		if ((node.winner != 0) || (depth <= 0) || this.isStopped()) {
+			return;
+		}
+		
+		int value = (game.getTurn() % Gomoku.PLAYER_COUNT) + 1;
+		if (!(node.isLeaf())) {
+			for (TreeNode n : node.nodes) {
+				if ((n != null) && game.makeMove(n.cell % Gomoku.BOARD_LENGTH, n.cell / Gomoku.BOARD_LENGTH, value)) {
+					this.deepen(n, game, depth - 1);
+					game.unmakeMove();
+				}
+			}
+			return;
+		}
+		
+		// The end is searched the way a new search would have, by a player as deep as it is there
+		int index = ((value - 1) * this.depth) + depth;
+		if (this.searchers == null) {
+			this.searchers = new Tini[Gomoku.PLAYER_COUNT * this.depth];
+			this.searchGames = new Gomoku[Gomoku.PLAYER_COUNT * this.depth];
+		}
+		if (this.searchers[index] == null) {
+			this.searchers[index] = new Tini(this.node.nodes.length, depth);
+			this.searchers[index].stop = this.stop;
+			
+			PlayerController[] controllers = new PlayerController[Gomoku.PLAYER_COUNT];
+			for (int i = 0; i < Gomoku.PLAYER_COUNT; i++) {
+				controllers[i] = (i == (value - 1)) ? this.searchers[index] : NULL_CONTROLLER;
+			}
+			this.searchGames[index] = game.clone(null, controllers);
+		}
+		else {
+			this.searchGames[index].cloneOf(game);
+		}
+		
+		Tini searcher = this.searchers[index];
+		Gomoku search = this.searchGames[index];
+		searcher.weights = this.weights;
+		searcher.gameStart(search, value);
+		search.next();
+		node.nodes = searcher.node.clone().nodes;
+		node.winner = search.getWinner();
+		this.positions += searcher.positions;
+		searcher.gameEnd(search);
+	}
+	
 	/**
 	 * Generates an n-ary tree with predictions for the next 'depth' amount of turns.
 	 * Afterwards it will proceed to determine which game turned out the best and use that strategy.
@@ -182,12 +353,15 @@ public class Tini implements PlayerController, AIController {
 	 */
 	private void evaluatePredicitons() {
 		if ((this.moves.size() <= 1) || (this.depth <= 0) || (this.node.nodes.length <= 1)) {
+			// The branches of an earlier position must not be taken for this one's
+			this.clearTree();
 			return;
 		}
 		
 		if (this.self == null || this.next == null || this.controllers == null) {
 			this.self = new Tini();
 			this.next = new Tini(this.node.nodes.length, this.depth - 1);
+			this.next.stop = this.stop;
 			this.controllers = new PlayerController[Gomoku.PLAYER_COUNT];
 			for (int i = 0; i < Gomoku.PLAYER_COUNT; i++) {
 				if (i == (this.value - 1)) {
@@ -202,23 +376,33 @@ public class Tini implements PlayerController, AIController {
 			}
 		}
 		
+		// The predicted players weigh moves the same way
+		this.self.weights = this.weights;
+		this.next.weights = this.weights;
+		
 		if (this.games == null) {
 			this.games = new Gomoku[this.node.nodes.length];
 		}
 		
-		List<Entry<Long,Integer>> moves = new ArrayList<Entry<Long,Integer>>(this.moves.entrySet());
-		Collections.shuffle(moves, this.rng);
-		moves.sort(new Comparator<Entry<Long,Integer>>() {
-			@Override
-			public int compare(Entry<Long,Integer> a, Entry<Long,Integer> b) {
-				return (b.getValue().compareTo(a.getValue()));
-			}
-		});
+		// Shuffled first, so that moves of equal priority come in a random order once sorted
+		int count = this.moves.toArrays(this.order, this.priorities);
+		for (int i = count - 1; i > 0; i--) {
+			int j = this.rng.nextInt(i + 1);
+			int cell = this.order[i];
+			int priority = this.priorities[i];
+			this.order[i] = this.order[j];
+			this.priorities[i] = this.priorities[j];
+			this.order[j] = cell;
+			this.priorities[j] = priority;
+		}
+		MoveOrdering.sort(this.order, this.priorities, count);
+		int first = 0;
+		int last = count - 1;
 		
 		float winChance = -1.0f;
 		float loseChance = -1.0f;
 		for (int i = 0; i < this.node.nodes.length; i++) {
-			if (moves.isEmpty()) {
+			if ((first > last) || this.isStopped()) {
 				this.node.nodes[i] = null;
 				continue;
 			}
@@ -233,23 +417,48 @@ public class Tini implements PlayerController, AIController {
 			this.self.gameStart(this.games[i], this.value);
 			this.next.gameStart(this.games[i], (this.value % Gomoku.PLAYER_COUNT) + 1);
 			
-			long token;
+			int cell;
 			if (this.minimax && (i % 2 != 0)) {
-				token = moves.remove(moves.size() - 1).getKey();
+				cell = this.order[last--];
 			}
 			else {
-				token = moves.remove(0).getKey();
+				cell = this.order[first++];
 			}
 			
-			int x = (int)(token >>> 32);
-			int y = (int)(token & 0xFFFFFFFF);
+			int x = cell % Gomoku.BOARD_LENGTH;
+			int y = cell / Gomoku.BOARD_LENGTH;
 			
 			this.self.x = x;
 			this.self.y = y;
 			this.self.priority = -1;
 			this.games[i].next(); //Make the designated move
-			this.games[i].next(); //Branch!
-			this.node.nodes[i] = this.next.node.clone();
+			
+			// Another thread may have already searched this branch as deep
+			long hash = this.games[i].getPositionHash();
+			long data = (this.table != null) ? this.table.probe(hash) : 0;
+			// Or it was searched two plies shallower for the last move, and only its ends need to be searched further
+			TreeNode kept = (this.reuse != null) ? this.reuse.find(cell) : null;
+			if ((data != 0) && (TranspositionTable.getDepth(data) >= this.depth)) {
+				int chances = TranspositionTable.getScore(data);
+				this.node.nodes[i] = new TreeNode(0);
+				this.node.nodes[i].cell = cell;
+				this.node.nodes[i].winner = this.games[i].getWinner();
+				this.node.nodes[i].win = (float)(chances >>> 16) / 100.0f;
+				this.node.nodes[i].lose = (float)(chances & 0xFFFF) / 100.0f;
+			}
+			else if (kept != null) {
+				this.deepen(kept, this.games[i], this.depth - 1);
+				this.node.nodes[i] = kept;
+			}
+			else {
+				this.next.positions = 0;
+				this.games[i].next(); //Branch!
+				this.node.nodes[i] = this.next.node.clone();
+				this.node.nodes[i].cell = cell;
+				this.node.nodes[i].winner = this.games[i].getWinner();
+				this.positions += this.next.positions;
+			}
+			this.positions++;
 			
 			this.self.gameEnd(this.games[i]);
 			this.next.gameEnd(this.games[i]);
@@ -257,6 +466,11 @@ public class Tini implements PlayerController, AIController {
 			float wc = this.chanceOfWinning(this.node.nodes[i]);
 			float lc = this.chanceOfLosing(this.node.nodes[i]);
 			
+			// A stopped branch is incomplete, its chances must not be shared
+			if ((this.table != null) && (data == 0) && !(this.isStopped())) {
+				this.table.store(hash, this.depth, TranspositionTable.BOUND_EXACT, Tini.packChances(wc, lc), TranspositionTable.NO_MOVE);
+			}
+			
 			if (((wc == -1.0f) && (lc == -1.0f)) ||
 				((wc > winChance) && (lc <= loseChance)) ||
 				((wc <= winChance) && (lc < loseChance))) {
@@ -266,8 +480,135 @@ public class Tini implements PlayerController, AIController {
 				loseChance = lc;
 			}
 		}
+	}
+	
+	/* ------- *
+	 * Threads *
+	 * ------- */
+	
+	private static final int TABLE_MEGABYTES = 16;
+	
+	private static final ThreadFactory DAEMON_FACTORY = new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+			thread.setDaemon(true);
+			return (thread);
+		}
+	};
+	
+	private int threads;
+	private TranspositionTable table = null;
+	private AtomicBoolean stop = null;
+	
+	private ExecutorService executor = null;
+	private Tini[] helpers = null;
+	private Gomoku[] helperGames = null;
+	
+	/**
+	 * Checks if the search this instance is part of was told to stop.
+	 * 
+	 * @return Whether or not the search should stop.
+	 */
+	private boolean isStopped() {
+		return ((this.stop != null) && this.stop.get());
+	}
+	
+	/**
+	 * Starts a helper searching the current position on its own copy of the game.
+	 * 
+	 * @param index The index of the helper.
+	 * @return The running search of the helper.
+	 */
+	private Future<?> startHelper(int index) {
+		final Tini helper = this.helpers[index];
+		PlayerController[] controllers = new PlayerController[Gomoku.PLAYER_COUNT];
+		for (int i = 0; i < Gomoku.PLAYER_COUNT; i++) {
+			controllers[i] = (i == (this.value - 1)) ? helper : NULL_CONTROLLER;
+		}
+		
+		if (this.helperGames[index] == null) {
+			this.helperGames[index] = this.game.clone(null, controllers);
+		}
+		else {
+			this.helperGames[index].cloneOf(this.game);
+		}
+		final Gomoku game = this.helperGames[index];
+		helper.gameStart(game, this.value);
+		helper.positions = 0;
 		
-		moves.clear();
+		return (this.executor.submit(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					helper.evaluateMoves();
+					helper.evaluatePredicitons();
+				}
+				finally {
+					helper.gameEnd(game);
+				}
+			}
+		}));
+	}
+	
+	/**
+	 * Lazy SMP: helper threads search the same position, half of them one turn deeper, in their own order.
+	 * The chances of every branch they finish are shared through a common table, so this thread
+	 * can skip the branches they already covered. Once this thread is done the helpers are stopped,
+	 * and only the decision made on this thread is used.
+	 */
+	private void evaluateInParallel() {
+		if ((this.moves.size() <= 1) || (this.table == null)) {
+			this.evaluatePredicitons();
+			return;
+		}
+		
+		if (this.executor == null) {
+			this.executor = Executors.newFixedThreadPool(this.threads - 1, DAEMON_FACTORY);
+			this.helpers = new Tini[this.threads - 1];
+			this.helperGames = new Gomoku[this.threads - 1];
+			
+			// Shared by the helpers and every prediction they make
+			AtomicBoolean stop = new AtomicBoolean(false);
+			for (int i = 0; i < this.helpers.length; i++) {
+				this.helpers[i] = new Tini(this.node.nodes.length, this.depth + ((i + 1) % 2), this.minimax);
+				this.helpers[i].table = this.table;
+				this.helpers[i].stop = stop;
+			}
+		}
+		for (Tini helper : this.helpers) {
+			helper.weights = this.weights;
+		}
+		
+		AtomicBoolean stop = this.helpers[0].stop;
+		stop.set(false);
+		this.table.newSearch();
+		
+		List<Future<?>> futures = new ArrayList<Future<?>>(this.helpers.length);
+		for (int i = 0; i < this.helpers.length; i++) {
+			futures.add(this.startHelper(i));
+		}
+		
+		try {
+			this.evaluatePredicitons();
+		}
+		finally {
+			stop.set(true);
+			try {
+				for (Future<?> future : futures) {
+					future.get();
+				}
+				for (Tini helper : this.helpers) {
+					this.positions += helper.positions;
+				}
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			}
+		}
 	}
 	
 	/* ----------------- *
@@ -291,15 +632,15 @@ public class Tini implements PlayerController, AIController {
 		}
 		
 		if (priority > 0 && this.depth > 0) {
-			long token = ((long)x << 32) | (long)y;
+			int cell = (y * Gomoku.BOARD_LENGTH) + x;
 			
-			if (this.moves.containsKey(token)) {
-				int prev = this.moves.get(token);
+			if (this.moves.contains(cell)) {
+				int prev = this.moves.get(cell);
 				if (prev > priority) {
 					return;
 				}
 			}
-			this.moves.put(token, priority);
+			this.moves.put(cell, priority);
 		}
 	}
 	
@@ -391,18 +732,18 @@ public class Tini implements PlayerController, AIController {
 					int priority = 0;
 					if (value == this.value) {
 						if (adjacent >= Gomoku.ADJACENT_TO_WIN) {
-							priority += 100;
+							priority += this.weights.getInt(Weight.TINI_FIVE);
 						}
 						else if (capacity >= Gomoku.ADJACENT_TO_WIN) {
 							if (adjacent > (Gomoku.ADJACENT_TO_WIN - 2)) {
-								priority += 50;
+								priority += this.weights.getInt(Weight.TINI_FOUR);
 							}
 							else {
-								priority += (10 * adjacent);
+								priority += (this.weights.getInt(Weight.TINI_ROW) * adjacent);
 							}
 						}
 						else if (this.game.isInDanger(x, y, value, alignment)) {
-							priority += (12 * adjacent);
+							priority += (this.weights.getInt(Weight.TINI_CLOSED_ROW) * adjacent);
 						}
 					}
 					else {
@@ -417,33 +758,33 @@ public class Tini implements PlayerController, AIController {
 						
 						if (threat) {
 							if (this.game.isInDanger(x, y, value, alignment)) {
-								priority += 100;
+								priority += this.weights.getInt(Weight.TINI_BREAK_FIVE);
 							}
 						}
 						else if (adjacent >= Gomoku.ADJACENT_TO_WIN) {
-							priority += 95;
+							priority += this.weights.getInt(Weight.TINI_BLOCK_FIVE);
 						}
 						else if (adjacent > (Gomoku.ADJACENT_TO_WIN - 2)) {
 							if (this.game.createsFreeThree(x, y, value, alignment)) {
-								priority += 47;
+								priority += this.weights.getInt(Weight.TINI_BLOCK_FREE_FOUR);
 							}
 							else {
-								priority += 45;
+								priority += this.weights.getInt(Weight.TINI_BLOCK_FOUR);
 							}
 						}
 						else {
-							priority += (9 * adjacent);
+							priority += (this.weights.getInt(Weight.TINI_BLOCK_ROW) * adjacent);
 						}
 					}
 					
 					// Only prioritize capturing if it earns us a win
 					if ((captures + this.game.getCaptureCount(this.value)) >= Gomoku.CAPTURES_TO_WIN) {
-						priority += 100;
+						priority += this.weights.getInt(Weight.TINI_WINNING_CAPTURE);
 					}
 					
 					// Only go for captures if there's nothing better to do
 					if (priority == 0) {
-						priority += (5 * captures);
+						priority += (this.weights.getInt(Weight.TINI_CAPTURE) * captures);
 					}
 					
 					if (priority > 0) {
@@ -464,9 +805,9 @@ public class Tini implements PlayerController, AIController {
 			return;
 		}
 		
-		for (long token : this.tokens) {
-			int x = (int)(token >>> 32);
-			int y = (int)(token & 0xFFFFFFFF);
+		for (int cell = this.tokens.next(0); cell >= 0; cell = this.tokens.next(cell + 1)) {
+			int x = cell % Gomoku.BOARD_LENGTH;
+			int y = cell / Gomoku.BOARD_LENGTH;
 			int value = this.game.getToken(x, y);
 			this.evaluateToken(x, y, value);
 		}
@@ -511,22 +852,24 @@ public class Tini implements PlayerController, AIController {
 			return;
 		}
 		
-		long token = ((long)x << 32) | (long)y;
+		int cell = (y * Gomoku.BOARD_LENGTH) + x;
 		
 		if (value == 0) {
-			this.tokens.remove(token);
+			this.tokens.remove(cell);
 		}
 		else {
-			this.tokens.add(token);
+			this.tokens.add(cell);
+			if (this.playedCount < this.played.length) {
+				this.played[this.playedCount] = cell;
+			}
+			this.playedCount++;
 		}
 	}
 	
 	@Override
 	public void informWinner(Gomoku game, int value) {
 		if (this.game == game) {
-			for (int i = 0; i < this.node.nodes.length; i++) {
-				this.node.nodes[i] = null;
-			}
+			this.clearTree();
 		}
 	}
 	
@@ -537,9 +880,19 @@ public class Tini implements PlayerController, AIController {
 		}
 		
 		long start = System.nanoTime();
+		this.positions = 0;
 		if (this.priority != -1) {
+			// Only the branch the game followed is kept, the rest of the last tree is released
+			this.reuse = this.findSubtree();
+			this.clearTree();
+			
 			this.evaluateMoves();
-			this.evaluatePredicitons();
+			if (this.threads > 1) {
+				this.evaluateInParallel();
+			}
+			else {
+				this.evaluatePredicitons();
+			}
 		}
 		game.submitMove(this.x, this.y, key);
 		this.elapsed = (double)(System.nanoTime() - start) / 1000000000.0;
@@ -548,6 +901,8 @@ public class Tini implements PlayerController, AIController {
 		this.y = -1;
 		this.priority = 0;
 		this.moves.clear();
+		this.reuse = null;
+		this.playedCount = 0;
 		return (true);
 	}
 	
@@ -558,12 +913,12 @@ public class Tini implements PlayerController, AIController {
 		}
 		
 		this.game = game;
-		this.node.game = game;
 		this.value = value;
+		this.playedCount = 0;
 		for (int y = 0; y < Gomoku.BOARD_LENGTH; y++) {
 			for (int x = 0; x < Gomoku.BOARD_LENGTH; x++) {
 				if (game.getToken(x, y) != 0) {
-					this.tokens.add(((long)x << 32) | (long)y);
+					this.tokens.add((y * Gomoku.BOARD_LENGTH) + x);
 				}
 			}
 		}
@@ -573,13 +928,20 @@ public class Tini implements PlayerController, AIController {
 	public void gameEnd(Gomoku game) {
 		if (this.game == game) {
 			this.game = null;
-			this.node.game = null;
+			this.clearTree();
 			this.tokens.clear();
+			this.reuse = null;
+			this.playedCount = 0;
 			
 			this.x = -1;
 			this.y = -1;
 			this.priority = 0;
 			this.moves.clear();
+			
+			if (this.executor != null) {
+				this.executor.shutdownNow();
+				this.executor = null;
+			}
 		}
 	}
 	
@@ -587,4 +949,24 @@ public class Tini implements PlayerController, AIController {
 	public double getTimeElapsed() {
 		return (this.elapsed);
 	}
+	
+	@Override
+	public Weights getWeights() {
+		return (this.weights);
+	}
+	
+	@Override
+	public void setWeights(Weights weights) {
+		this.weights = weights;
+	}
+	
+	@Override
+	public int getDepthReached() {
+		return ((this.positions > 0) ? this.depth : 0);
+	}
+	
+	@Override
+	public long getNodeCount() {
+		return (this.positions);
+	}
 }
@@ -0,0 +1,189 @@
+package org.us._42.laphicet.gomoku.ai;
+
+/**
+ * A fixed size transposition table shared by searches, keyed by {@link org.us._42.laphicet.gomoku.Gomoku#getPositionHash()}.
+ * 
+ * Entries are stored as two longs in a flat long[], the packed data and the hash XORed with that data.
+ * An entry only matches when both halves agree, so a torn write from another thread reads as a miss.
+ * This lets several search threads share one table without locks.
+ * 
+ * Entries are grouped in buckets of four. When a bucket is full, entries left over from older
+ * searches are replaced first, then the shallowest ones.
+ */
+public class TranspositionTable {
+	public static final int BOUND_UPPER = 1;
+	public static final int BOUND_LOWER = 2;
+	public static final int BOUND_EXACT = 3;
+	
+	public static final int NO_MOVE = -1;
+	
+	private static final int BUCKET_SIZE = 4;
+	private static final int ENTRY_LONGS = 2;
+	private static final int ENTRY_BYTES = ENTRY_LONGS * Long.BYTES;
+	
+	private static final int MOVE_SHIFT = 32;
+	private static final int DEPTH_SHIFT = 42;
+	private static final int BOUND_SHIFT = 50;
+	private static final int AGE_SHIFT = 52;
+	
+	private static final long MOVE_MASK = 0x3FF;
+	private static final long DEPTH_MASK = 0xFF;
+	private static final long BOUND_MASK = 0x3;
+	private static final long AGE_MASK = 0xFF;
+	
+	private final long[] table;
+	private final long mask;
+	private int age = 0;
+	
+	/**
+	 * Creates a new transposition table.
+	 * 
+	 * @param megabytes The maximum amount of memory to use, rounded down to a power of two number of buckets.
+	 */
+	public TranspositionTable(int megabytes) {
+		if (megabytes <= 0) {
+			throw new IllegalArgumentException("A transposition table needs at least one megabyte!");
+		}
+		
+		long buckets = ((long)megabytes * 1024 * 1024) / (ENTRY_BYTES * BUCKET_SIZE);
+		buckets = Long.highestOneBit(Math.min(buckets, Integer.MAX_VALUE / (ENTRY_LONGS * BUCKET_SIZE)));
+		
+		this.table = new long[(int)buckets * ENTRY_LONGS * BUCKET_SIZE];
+		this.mask = buckets - 1;
+	}
+	
+	/**
+	 * Marks the start of a new search.
+	 * Entries stored by earlier searches become preferred for replacement.
+	 */
+	public void newSearch() {
+		this.age = (int)((this.age + 1) & AGE_MASK);
+	}
+	
+	/**
+	 * Removes every entry from the table.
+	 */
+	public void clear() {
+		for (int i = 0; i < this.table.length; i++) {
+			this.table[i] = 0;
+		}
+		this.age = 0;
+	}
+	
+	/**
+	 * Gets the number of entries the table can hold.
+	 * 
+	 * @return The capacity of the table.
+	 */
+	public int getCapacity() {
+		return (this.table.length / ENTRY_LONGS);
+	}
+	
+	/**
+	 * Looks up a position in the table.
+	 * The returned data can be read with {@link #getScore(long)}, {@link #getDepth(long)},
+	 * {@link #getBound(long)} and {@link #getMove(long)}.
+	 * 
+	 * @param hash The hash of the position.
+	 * @return The packed data of the entry, or 0 if the position is not stored.
+	 */
+	public long probe(long hash) {
+		int bucket = (int)(hash & this.mask) * ENTRY_LONGS * BUCKET_SIZE;
+		for (int i = bucket; i < bucket + (ENTRY_LONGS * BUCKET_SIZE); i += ENTRY_LONGS) {
+			long data = this.table[i + 1];
+			long check = this.table[i];
+			if (((check ^ data) == hash) && (((data >>> BOUND_SHIFT) & BOUND_MASK) != 0)) {
+				return (data);
+			}
+		}
+		return (0);
+	}
+	
+	/**
+	 * Stores the result of a search in the table.
+	 * 
+	 * @param hash The hash of the position.
+	 * @param depth The depth that was searched, from 0 to 255.
+	 * @param bound The type of bound the score represents, one of BOUND_UPPER, BOUND_LOWER or BOUND_EXACT.
+	 * @param score The score of the position.
+	 * @param move The cell index of the best move, or NO_MOVE.
+	 */
+	public void store(long hash, int depth, int bound, int score, int move) {
+		int bucket = (int)(hash & this.mask) * ENTRY_LONGS * BUCKET_SIZE;
+		
+		int slot = -1;
+		int worst = Integer.MAX_VALUE;
+		for (int i = bucket; i < bucket + (ENTRY_LONGS * BUCKET_SIZE); i += ENTRY_LONGS) {
+			long data = this.table[i + 1];
+			if ((this.table[i] ^ data) == hash) {
+				// Keep a known best move if this search did not find one
+				if ((move == NO_MOVE) && (getMove(data) != NO_MOVE)) {
+					move = getMove(data);
+				}
+				slot = i;
+				break;
+			}
+			
+			// Empty slots value lowest, then older and shallower entries
+			int value = -1;
+			if (((data >>> BOUND_SHIFT) & BOUND_MASK) != 0) {
+				int stale = (int)((this.age - ((data >>> AGE_SHIFT) & AGE_MASK)) & AGE_MASK);
+				value = getDepth(data) - (stale * 8);
+			}
+			if (value < worst) {
+				worst = value;
+				slot = i;
+			}
+		}
+		
+		long data = (score & 0xFFFFFFFFL) |
+				(((move == NO_MOVE) ? MOVE_MASK : (move & MOVE_MASK)) << MOVE_SHIFT) |
+				((Math.max(0, Math.min(depth, (int)DEPTH_MASK)) & DEPTH_MASK) << DEPTH_SHIFT) |
+				((bound & BOUND_MASK) << BOUND_SHIFT) |
+				((this.age & AGE_MASK) << AGE_SHIFT);
+		
+		this.table[slot + 1] = data;
+		this.table[slot] = hash ^ data;
+	}
+	
+	/**
+	 * Gets the score from an entry's data.
+	 * 
+	 * @param data The packed data returned by {@link #probe(long)}.
+	 * @return The stored score.
+	 */
+	public static int getScore(long data) {
+		return ((int)data);
+	}
+	
+	/**
+	 * Gets the best move from an entry's data.
+	 * 
+	 * @param data The packed data returned by {@link #probe(long)}.
+	 * @return The stored cell index, or NO_MOVE.
+	 */
+	public static int getMove(long data) {
+		int move = (int)((data >>> MOVE_SHIFT) & MOVE_MASK);
+		return ((move == MOVE_MASK) ? NO_MOVE : move);
+	}
+	
+	/**
+	 * Gets the searched depth from an entry's data.
+	 * 
+	 * @param data The packed data returned by {@link #probe(long)}.
+	 * @return The stored depth.
+	 */
+	public static int getDepth(long data) {
+		return ((int)((data >>> DEPTH_SHIFT) & DEPTH_MASK));
+	}
+	
+	/**
+	 * Gets the bound type from an entry's data.
+	 * 
+	 * @param data The packed data returned by {@link #probe(long)}.
+	 * @return One of BOUND_UPPER, BOUND_LOWER or BOUND_EXACT, or 0 for a miss.
+	 */
+	public static int getBound(long data) {
+		return ((int)((data >>> BOUND_SHIFT) & BOUND_MASK));
+	}
+}
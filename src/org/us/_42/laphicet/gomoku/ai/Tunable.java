@@ -0,0 +1,20 @@
+package org.us._42.laphicet.gomoku.ai;
+
+/**
+ * An AI whose heuristics are weighed by {@link Weights}, so they can be loaded at runtime and tuned.
+ */
+public interface Tunable {
+	/**
+	 * Returns the weights the AI plays with.
+	 * 
+	 * @return The weights.
+	 */
+	public Weights getWeights();
+	
+	/**
+	 * Changes the weights the AI plays with, from its next move on.
+	 * 
+	 * @param weights The new weights.
+	 */
+	public void setWeights(Weights weights);
+}
@@ -0,0 +1,155 @@
+package org.us._42.laphicet.gomoku.ai;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * The weights of the heuristics of the AIs, as a vector that can be loaded at runtime.
+ * 
+ * Every weight belongs to one AI, and starts at the value the AI was hand tuned with.
+ * A weights file holds one NAME=value line per weight, weights left out keep their initial value.
+ * Weights never change once created, so one instance may be shared by any number of players.
+ */
+public class Weights {
+	public static enum Weight {
+		ARTA_PLAYER_CHAIN("arta", 2.0),
+		ARTA_ENEMY_CHAIN("arta", 5.0),
+		ARTA_CAPTURE("arta", 3.0),
+		ARTA_WILL_BE_CAPTURED("arta", 5.0),
+		ARTA_ADJACENT("arta", 2.5),
+		
+		LYDEKA_PLAYER_CHAIN("lydeka", 2.0),
+		LYDEKA_ENEMY_CHAIN("lydeka", 3.5),
+		LYDEKA_CAPTURE("lydeka", 2.5),
+		LYDEKA_WILL_BE_CAPTURED("lydeka", 25.0),
+		
+		TINI_FIVE("tini", 100),
+		TINI_FOUR("tini", 50),
+		TINI_ROW("tini", 10),
+		TINI_CLOSED_ROW("tini", 12),
+		TINI_BREAK_FIVE("tini", 100),
+		TINI_BLOCK_FIVE("tini", 95),
+		TINI_BLOCK_FREE_FOUR("tini", 47),
+		TINI_BLOCK_FOUR("tini", 45),
+		TINI_BLOCK_ROW("tini", 9),
+		TINI_WINNING_CAPTURE("tini", 100),
+		TINI_CAPTURE("tini", 5);
+		
+		public final String owner;
+		public final double initial;
+		
+		private Weight(String owner, double initial) {
+			this.owner = owner;
+			this.initial = initial;
+		}
+	}
+	
+	private static final Weight[] WEIGHTS = Weight.values();
+	
+	public static final Weights DEFAULT = new Weights();
+	
+	private final double[] values;
+	
+	/**
+	 * Creates the initial weights.
+	 */
+	public Weights() {
+		this.values = new double[WEIGHTS.length];
+		for (Weight weight : WEIGHTS) {
+			this.values[weight.ordinal()] = weight.initial;
+		}
+	}
+	
+	/**
+	 * Creates weights from a vector.
+	 * 
+	 * @param values The value of every weight, by ordinal.
+	 */
+	private Weights(double[] values) {
+		this.values = values;
+	}
+	
+	/**
+	 * Gets a weight.
+	 * 
+	 * @param weight The weight.
+	 * @return The value of the weight.
+	 */
+	public double get(Weight weight) {
+		return (this.values[weight.ordinal()]);
+	}
+	
+	/**
+	 * Gets a weight used as a whole number, such as a move priority.
+	 * 
+	 * @param weight The weight.
+	 * @return The value of the weight, rounded.
+	 */
+	public int getInt(Weight weight) {
+		return ((int)Math.round(this.values[weight.ordinal()]));
+	}
+	
+	/**
+	 * Creates a copy of these weights with one weight changed.
+	 * 
+	 * @param weight The weight to change.
+	 * @param value The new value of the weight.
+	 * @return The new weights.
+	 */
+	public Weights with(Weight weight, double value) {
+		double[] values = this.values.clone();
+		values[weight.ordinal()] = value;
+		return (new Weights(values));
+	}
+	
+	/**
+	 * Reads weights from a file.
+	 * 
+	 * @param path The path of the weights file.
+	 * @return The weights, with the initial value for any weight the file leaves out.
+	 * @throws IOException If the file cannot be read, or names an unknown weight.
+	 */
+	public static Weights load(Path path) throws IOException {
+		Properties properties = new Properties();
+		try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			properties.load(reader);
+		}
+		
+		double[] values = new Weights().values;
+		for (String name : properties.stringPropertyNames()) {
+			try {
+				values[Weight.valueOf(name.trim().toUpperCase()).ordinal()] = Double.parseDouble(properties.getProperty(name).trim());
+			}
+			catch (IllegalArgumentException e) {
+				throw new IOException(path + ": invalid weight " + name + "=" + properties.getProperty(name), e);
+			}
+		}
+		return (new Weights(values));
+	}
+	
+	/**
+	 * Writes these weights to a file, replacing the file.
+	 * 
+	 * @param path The path of the weights file.
+	 * @throws IOException If the file cannot be written.
+	 */
+	public void save(Path path) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+			writer.write(this.toString());
+		}
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		for (Weight weight : WEIGHTS) {
+			builder.append(weight.name()).append('=').append(this.values[weight.ordinal()]).append(System.lineSeparator());
+		}
+		return (builder.toString());
+	}
+}
@@ -0,0 +1,111 @@
+package org.us._42.laphicet.gomoku.selfplay;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+
+import org.us._42.laphicet.gomoku.Gomoku;
+import org.us._42.laphicet.gomoku.ai.OpeningBook;
+
+/**
+ * Runs a series of games between AIs from the command line, without opening a window.
+ * 
+ * Usage: selfplay.Main [-games n] [-threads n] [-turns n] [-quiet] [-book file [-plies n]] player player
+ * 
+ * With -book, the opening moves of every winner are written to an opening book once all games are played.
+ */
+public class Main {
+	private static final String USAGE = "Usage: [-games n] [-threads n] [-turns n] [-quiet] [-book file [-plies n]] player player\n"
+			+ "    players: " + Players.USAGE;
+	private static final int DEFAULT_BOOK_PLIES = 8;
+	
+	public static void main(String... args) throws InterruptedException {
+		int games = 100;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int turns = SelfPlay.DEFAULT_TURN_LIMIT;
+		boolean quiet = false;
+		String book = null;
+		int plies = DEFAULT_BOOK_PLIES;
+		String[] players = new String[Gomoku.PLAYER_COUNT];
+		int count = 0;
+		SelfPlay selfPlay = null;
+		
+		try {
+			for (int i = 0; i < args.length; i++) {
+				switch (args[i]) {
+					case "-games":
+						games = Integer.parseInt(args[++i]);
+						break;
+					case "-threads":
+						threads = Integer.parseInt(args[++i]);
+						break;
+					case "-turns":
+						turns = Integer.parseInt(args[++i]);
+						break;
+					case "-quiet":
+						quiet = true;
+						break;
+					case "-book":
+						book = args[++i];
+						break;
+					case "-plies":
+						plies = Integer.parseInt(args[++i]);
+						break;
+					default:
+						if (count >= players.length) {
+							throw new IllegalArgumentException("Too many players");
+						}
+						players[count++] = args[i];
+						break;
+				}
+			}
+			if (count < players.length) {
+				throw new IllegalArgumentException("Not enough players");
+			}
+			selfPlay = new SelfPlay(games, threads, turns, players);
+			if (book != null) {
+				selfPlay.setBook(new OpeningBook.Builder(), plies);
+			}
+		}
+		catch (RuntimeException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(1);
+		}
+		
+		PrintStream out = System.out;
+		PrintStream err = System.err;
+		
+		// The AIs print their reasoning, keep it out of the results
+		if (quiet) {
+			PrintStream sink = new PrintStream(new OutputStream() {
+				@Override
+				public void write(int b) { }
+			});
+			System.setOut(sink);
+			System.setErr(sink);
+		}
+		
+		long start = System.nanoTime();
+		Results results = selfPlay.run(err);
+		double elapsed = (double)(System.nanoTime() - start) / 1000000000.0;
+		
+		System.setOut(out);
+		System.setErr(err);
+		results.print(out);
+		out.println(String.format("Played in %.1f seconds on %d threads", elapsed, threads));
+		
+		if (book != null) {
+			try {
+				OpeningBook.Builder builder = selfPlay.getBook();
+				builder.write(Paths.get(book));
+				out.println(String.format("Wrote %d positions to %s", builder.getPositionCount(), book));
+			}
+			catch (IOException e) {
+				err.println("Cannot write opening book " + book + ": " + e.getMessage());
+				System.exit(1);
+			}
+		}
+	}
+}
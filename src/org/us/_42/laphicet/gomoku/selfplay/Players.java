@@ -0,0 +1,153 @@
+package org.us._42.laphicet.gomoku.selfplay;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.us._42.laphicet.gomoku.PlayerController;
+import org.us._42.laphicet.gomoku.ai.Arta;
+import org.us._42.laphicet.gomoku.ai.BookController;
+import org.us._42.laphicet.gomoku.ai.Egle;
+import org.us._42.laphicet.gomoku.ai.Lydeka;
+import org.us._42.laphicet.gomoku.ai.Martin;
+import org.us._42.laphicet.gomoku.ai.OpeningBook;
+import org.us._42.laphicet.gomoku.ai.Ruta;
+import org.us._42.laphicet.gomoku.ai.Saule;
+import org.us._42.laphicet.gomoku.ai.Tini;
+import org.us._42.laphicet.gomoku.ai.Tunable;
+import org.us._42.laphicet.gomoku.ai.Weights;
+
+/**
+ * Creates AI players from short text descriptions, so they can be chosen on the command line.
+ * 
+ * A description is the name of an AI, optionally followed by a colon and its comma separated arguments:
+ * martin, tini:moves,depth,threads, arta:amount,depth, lydeka:amount,depth,
+ * ruta:depth,width or ruta:seconds s,width for a time budget (for example ruta:0.5s,12),
+ * followed by 1 to ponder during the opponent's turn, egle with the same arguments as ruta,
+ * saule:seconds,threads.
+ * Tini, arta and lydeka may be followed by # and the path of a weights file, see {@link Weights#load(java.nio.file.Path)}.
+ * Any description may end with @ and the path of an opening book, to play from the book while the game is in it.
+ */
+public class Players {
+	public static final String USAGE = "(martin | tini[:moves,depth,threads] | arta[:amount,depth] | lydeka[:amount,depth] | ruta[:depth,width,ponder | :seconds s,width,ponder] | egle[:depth,width,ponder | :seconds s,width,ponder] | saule[:seconds,threads])[#weights][@book]";
+	
+	// Books are read-only, every game opening the same path shares one mapping
+	private static final Map<String,OpeningBook> BOOKS = new HashMap<String,OpeningBook>();
+	
+	/**
+	 * Opens an opening book, or reuses it if it was opened before.
+	 * 
+	 * @param path The path of the book.
+	 * @return The opening book.
+	 * @throws IllegalArgumentException If the book cannot be read.
+	 */
+	private static synchronized OpeningBook book(String path) {
+		OpeningBook book = BOOKS.get(path);
+		if (book == null) {
+			try {
+				book = new OpeningBook(Paths.get(path));
+			}
+			catch (IOException e) {
+				throw new IllegalArgumentException("Cannot open opening book " + path, e);
+			}
+			BOOKS.put(path, book);
+		}
+		return (book);
+	}
+	
+	/**
+	 * Reads a weights file. Files are read again on every call, so a tuner may rewrite them between series.
+	 * 
+	 * @param path The path of the weights file.
+	 * @return The weights.
+	 * @throws IllegalArgumentException If the file cannot be read.
+	 */
+	private static Weights weights(String path) {
+		try {
+			return (Weights.load(Paths.get(path)));
+		}
+		catch (IOException e) {
+			throw new IllegalArgumentException("Cannot read weights " + path, e);
+		}
+	}
+	
+	/**
+	 * Parses an integer argument of a description.
+	 * 
+	 * @param args The arguments of the description.
+	 * @param index The index of the argument.
+	 * @param fallback The value to use if the argument is missing.
+	 * @return The value of the argument.
+	 */
+	private static int integer(String[] args, int index, int fallback) {
+		if (index >= args.length) {
+			return (fallback);
+		}
+		return (Integer.parseInt(args[index].trim()));
+	}
+	
+	/**
+	 * Creates a new player from a description.
+	 * Every call creates a new instance, AIs keep state between moves and should not be shared between games.
+	 * 
+	 * @param description The description of the player.
+	 * @return A new player.
+	 * @throws IllegalArgumentException If the description is not understood.
+	 */
+	public static PlayerController create(String description) {
+		int at = description.lastIndexOf('@');
+		if (at >= 0) {
+			return (new BookController(create(description.substring(0, at)), book(description.substring(at + 1).trim())));
+		}
+		
+		int hash = description.lastIndexOf('#');
+		if (hash >= 0) {
+			PlayerController player = create(description.substring(0, hash));
+			if (!(player instanceof Tunable)) {
+				throw new IllegalArgumentException("Player " + description.substring(0, hash) + " has no weights");
+			}
+			((Tunable)player).setWeights(weights(description.substring(hash + 1).trim()));
+			return (player);
+		}
+		
+		String[] parts = description.split(":", 2);
+		String name = parts[0].trim().toLowerCase();
+		String[] args = (parts.length > 1) ? parts[1].split(",") : new String[0];
+		
+		try {
+			switch (name) {
+				case "martin":
+					return (new Martin());
+				case "tini":
+					return (new Tini(integer(args, 0, 3), integer(args, 1, 3), false, integer(args, 2, 1)));
+				case "arta":
+					return (new Arta(integer(args, 0, 4), integer(args, 1, 3)));
+				case "lydeka":
+					return (new Lydeka(integer(args, 0, 4), integer(args, 1, 3)));
+				case "ruta":
+				case "egle":
+					Ruta ruta;
+					if ((args.length > 0) && args[0].trim().endsWith("s")) {
+						String seconds = args[0].trim();
+						double budget = Double.parseDouble(seconds.substring(0, seconds.length() - 1));
+						ruta = name.equals("egle") ? new Egle(budget, integer(args, 1, 12)) : new Ruta(budget, integer(args, 1, 12));
+					}
+					else {
+						ruta = name.equals("egle") ? new Egle(integer(args, 0, 6), integer(args, 1, 12)) : new Ruta(integer(args, 0, 6), integer(args, 1, 12));
+					}
+					ruta.setPondering(integer(args, 2, 0) != 0);
+					return (ruta);
+				case "saule":
+					return (new Saule((args.length > 0) ? Double.parseDouble(args[0].trim()) : 1.0,
+							integer(args, 1, Runtime.getRuntime().availableProcessors())));
+				default:
+					break;
+			}
+		}
+		catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid arguments for player " + description, e);
+		}
+		throw new IllegalArgumentException("Unknown player " + description + ", expected " + USAGE);
+	}
+}
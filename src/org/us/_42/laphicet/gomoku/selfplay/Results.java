@@ -0,0 +1,188 @@
+package org.us._42.laphicet.gomoku.selfplay;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+import org.us._42.laphicet.gomoku.Gomoku;
+
+/**
+ * The combined results of a series of games played by {@link SelfPlay}.
+ * Players are referred to by their index in the series.
+ */
+public class Results {
+	private String[] players;
+	
+	private int games = 0;
+	private int draws = 0;
+	private long turns = 0;
+	private int[] wins = new int[Gomoku.PLAYER_COUNT];
+	private int[] forfeits = new int[Gomoku.PLAYER_COUNT];
+	
+	private long[][] latencies = new long[Gomoku.PLAYER_COUNT][64];
+	private int[] moves = new int[Gomoku.PLAYER_COUNT];
+	private long[] nodes = new long[Gomoku.PLAYER_COUNT];
+	private long[] time = new long[Gomoku.PLAYER_COUNT];
+	private boolean sorted = true;
+	
+	/**
+	 * Creates empty results.
+	 * 
+	 * @param players The descriptions of the players.
+	 */
+	Results(String[] players) {
+		this.players = players.clone();
+	}
+	
+	/**
+	 * Adds the outcome of a game.
+	 * 
+	 * @param outcome The outcome of the game.
+	 */
+	void add(SelfPlay.Outcome outcome) {
+		this.games++;
+		this.turns += outcome.turns;
+		
+		if (outcome.winner < 0) {
+			this.draws++;
+		}
+		else {
+			this.wins[outcome.winner]++;
+			if (outcome.forfeit) {
+				this.forfeits[(outcome.winner + 1) % Gomoku.PLAYER_COUNT]++;
+			}
+		}
+		
+		for (int i = 0; i < Gomoku.PLAYER_COUNT; i++) {
+			long[] latencies = outcome.latencies[i];
+			if (this.moves[i] + latencies.length > this.latencies[i].length) {
+				this.latencies[i] = Arrays.copyOf(this.latencies[i], Math.max(this.latencies[i].length * 2, this.moves[i] + latencies.length));
+			}
+			System.arraycopy(latencies, 0, this.latencies[i], this.moves[i], latencies.length);
+			this.moves[i] += latencies.length;
+			for (long latency : latencies) {
+				this.time[i] += latency;
+			}
+			this.nodes[i] += outcome.nodes[i];
+		}
+		this.sorted = false;
+	}
+	
+	/**
+	 * Gets the number of games played.
+	 * 
+	 * @return The number of games.
+	 */
+	public int getGames() {
+		return (this.games);
+	}
+	
+	/**
+	 * Gets the number of games won by a player, including games won by forfeit.
+	 * 
+	 * @param player The index of the player.
+	 * @return The number of games won.
+	 */
+	public int getWins(int player) {
+		return (this.wins[player]);
+	}
+	
+	/**
+	 * Gets the number of games a player lost by forfeit.
+	 * 
+	 * @param player The index of the player.
+	 * @return The number of games forfeited.
+	 */
+	public int getForfeits(int player) {
+		return (this.forfeits[player]);
+	}
+	
+	/**
+	 * Gets the number of games that reached the turn limit.
+	 * 
+	 * @return The number of draws.
+	 */
+	public int getDraws() {
+		return (this.draws);
+	}
+	
+	/**
+	 * Gets the score of a player, counting a win as 1 and a draw as a half.
+	 * 
+	 * @param player The index of the player.
+	 * @return The score divided by the number of games, from 0 to 1.
+	 */
+	public double getScore(int player) {
+		if (this.games == 0) {
+			return (0.0);
+		}
+		return ((this.wins[player] + (this.draws / 2.0)) / this.games);
+	}
+	
+	/**
+	 * Gets the average number of turns in a game.
+	 * 
+	 * @return The average game length.
+	 */
+	public double getAverageLength() {
+		if (this.games == 0) {
+			return (0.0);
+		}
+		return ((double)this.turns / this.games);
+	}
+	
+	/**
+	 * Gets a percentile of the time a player took to move.
+	 * 
+	 * @param player The index of the player.
+	 * @param percentile The percentile, from 0 to 100.
+	 * @return The latency in seconds, or 0 if the player made no moves.
+	 */
+	public double getLatency(int player, double percentile) {
+		if (this.moves[player] == 0) {
+			return (0.0);
+		}
+		if (!(this.sorted)) {
+			for (int i = 0; i < Gomoku.PLAYER_COUNT; i++) {
+				Arrays.sort(this.latencies[i], 0, this.moves[i]);
+			}
+			this.sorted = true;
+		}
+		
+		// Nearest rank
+		int rank = (int)Math.ceil((percentile / 100.0) * this.moves[player]);
+		rank = Math.max(1, Math.min(rank, this.moves[player]));
+		return ((double)this.latencies[player][rank - 1] / 1000000000.0);
+	}
+	
+	/**
+	 * Gets how many positions a player searched per second of thinking.
+	 * 
+	 * @param player The index of the player.
+	 * @return The number of positions per second, or 0 if the player does not report them.
+	 */
+	public double getThroughput(int player) {
+		if (this.time[player] == 0) {
+			return (0.0);
+		}
+		return ((double)this.nodes[player] / ((double)this.time[player] / 1000000000.0));
+	}
+	
+	/**
+	 * Prints a summary of the results.
+	 * 
+	 * @param out The stream to print to.
+	 */
+	public void print(PrintStream out) {
+		out.println(String.format("%d games, %d draws, %.1f turns on average", this.games, this.draws, this.getAverageLength()));
+		for (int i = 0; i < Gomoku.PLAYER_COUNT; i++) {
+			out.println(String.format("%s: %d wins (%.1f%%), %d forfeits, score %.3f",
+					this.players[i], this.wins[i], (this.games == 0) ? 0.0 : (100.0 * this.wins[i] / this.games),
+					this.forfeits[i], this.getScore(i)));
+			out.println(String.format("    move latency over %d moves: p50 %.3fs, p90 %.3fs, p99 %.3fs, max %.3fs",
+					this.moves[i], this.getLatency(i, 50), this.getLatency(i, 90), this.getLatency(i, 99), this.getLatency(i, 100)));
+			if (this.nodes[i] > 0) {
+				out.println(String.format("    searched %d positions, %.0f per second", this.nodes[i], this.getThroughput(i)));
+			}
+		}
+	}
+}
@@ -0,0 +1,247 @@
+package org.us._42.laphicet.gomoku.selfplay;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.us._42.laphicet.gomoku.GameStateReporter;
+import org.us._42.laphicet.gomoku.Gomoku;
+import org.us._42.laphicet.gomoku.PlayerController;
+import org.us._42.laphicet.gomoku.ai.OpeningBook;
+
+/**
+ * Plays a series of games between players without any user interface.
+ * 
+ * Every game uses its own Gomoku instance and freshly created players, so games run in parallel.
+ * Players swap seats every game, so each plays first equally often.
+ * A game ends in a draw once it reaches the turn limit, and a player forfeits
+ * if it fails to make a valid move several times in a row or throws an exception.
+ * The opening moves of every winner can be collected into an opening book.
+ */
+public class SelfPlay {
+	public static final int DEFAULT_TURN_LIMIT = 400;
+	public static final int STALL_LIMIT = 3;
+	
+	private String[] players = new String[Gomoku.PLAYER_COUNT];
+	private int games;
+	private int threads;
+	private int turnLimit;
+	
+	private OpeningBook.Builder book = null;
+	private int bookPlies = 0;
+	
+	/**
+	 * Records the moves of a game, so they can be added to an opening book once the winner is known.
+	 */
+	private static class Recorder implements GameStateReporter {
+		private List<Integer> moves = new ArrayList<Integer>();
+		
+		@Override
+		public void logTurn(Gomoku game, Collection<String> logs) {
+		}
+		
+		@Override
+		public void reportChange(Gomoku game, int x, int y, int value) {
+			if (value != 0) {
+				this.moves.add((value << 16) | ((y * Gomoku.BOARD_LENGTH) + x));
+			}
+		}
+	}
+	
+	/**
+	 * The outcome of a single game.
+	 */
+	static class Outcome {
+		int winner = -1;
+		int turns = 0;
+		boolean forfeit = false;
+		long[][] latencies = new long[Gomoku.PLAYER_COUNT][];
+		long[] nodes = new long[Gomoku.PLAYER_COUNT];
+	}
+	
+	/**
+	 * Creates a new series of games.
+	 * 
+	 * @param games The number of games to play.
+	 * @param threads The number of games to play at once.
+	 * @param turnLimit The number of turns after which a game is a draw.
+	 * @param players The descriptions of the players, see {@link Players#create(String)}.
+	 */
+	public SelfPlay(int games, int threads, int turnLimit, String... players) {
+		if (players.length < Gomoku.PLAYER_COUNT) {
+			throw new IllegalArgumentException("Not enough players to start a game!");
+		}
+		for (int i = 0; i < Gomoku.PLAYER_COUNT; i++) {
+			// Fail early on descriptions that are not understood
+			Players.create(players[i]);
+			this.players[i] = players[i];
+		}
+		
+		this.games = Math.max(games, 0);
+		this.threads = Math.max(threads, 1);
+		this.turnLimit = (turnLimit > 0) ? turnLimit : DEFAULT_TURN_LIMIT;
+	}
+	
+	/**
+	 * Collects the opening moves of every winner into an opening book, each adding a weight of 1.
+	 * 
+	 * @param book The builder of the book, or null to stop collecting.
+	 * @param plies The number of turns from the start of every game to collect.
+	 */
+	public void setBook(OpeningBook.Builder book, int plies) {
+		this.book = book;
+		this.bookPlies = Math.max(plies, 0);
+	}
+	
+	/**
+	 * Gets the opening book the games are collected into.
+	 * 
+	 * @return The builder of the book, or null if the games are not collected.
+	 */
+	public OpeningBook.Builder getBook() {
+		return (this.book);
+	}
+	
+	/**
+	 * Adds the opening moves of the winner of a game to the book.
+	 * 
+	 * @param recorder The moves of the game.
+	 * @param winner The value of the winner.
+	 * @param controllers The players of the game.
+	 */
+	private void addToBook(Recorder recorder, int winner, PlayerController[] controllers) {
+		Gomoku game = new Gomoku(controllers);
+		for (int i = 0; (i < recorder.moves.size()) && (game.getTurn() < this.bookPlies); i++) {
+			int move = recorder.moves.get(i);
+			int value = move >>> 16;
+			int x = (move & 0xFFFF) % Gomoku.BOARD_LENGTH;
+			int y = (move & 0xFFFF) / Gomoku.BOARD_LENGTH;
+			
+			if (value == winner) {
+				this.book.add(game, x, y, 1);
+			}
+			game.makeMove(x, y, value);
+		}
+	}
+	
+	/**
+	 * Plays a single game.
+	 * 
+	 * @param index The index of the game, used to decide the seats.
+	 * @return The outcome of the game, with players referred to by their index in the series.
+	 */
+	private Outcome play(int index) {
+		TimedController[] controllers = new TimedController[Gomoku.PLAYER_COUNT];
+		for (int i = 0; i < Gomoku.PLAYER_COUNT; i++) {
+			controllers[i] = new TimedController(Players.create(this.players[(i + index) % Gomoku.PLAYER_COUNT]));
+		}
+		
+		Outcome outcome = new Outcome();
+		Recorder recorder = (this.book != null) ? new Recorder() : null;
+		Gomoku game = new Gomoku(recorder, controllers);
+		int stalls = 0;
+		int forfeit = 0;
+		int winner = 0;
+		
+		try {
+			while ((game.getWinner() == 0) && (game.getTurn() < this.turnLimit)) {
+				int turn = game.getTurn();
+				game.next();
+				
+				if ((game.getWinner() == 0) && (game.getTurn() == turn)) {
+					if (++stalls >= STALL_LIMIT) {
+						forfeit = (turn % Gomoku.PLAYER_COUNT) + 1;
+						break;
+					}
+				}
+				else {
+					stalls = 0;
+				}
+			}
+			
+			// Resetting informs the players that the game ended, but also clears the board
+			winner = game.getWinner();
+			outcome.turns = game.getTurn();
+			game.reset();
+		}
+		catch (RuntimeException e) {
+			forfeit = (game.getTurn() % Gomoku.PLAYER_COUNT) + 1;
+			outcome.turns = game.getTurn();
+			System.err.println("[SelfPlay] " + this.players[(forfeit - 1 + index) % Gomoku.PLAYER_COUNT] + " failed in game " + index + ": " + e);
+			for (PlayerController controller : controllers) {
+				controller.gameEnd(game);
+			}
+		}
+		
+		if (forfeit != 0) {
+			outcome.forfeit = true;
+			winner = (forfeit % Gomoku.PLAYER_COUNT) + 1;
+		}
+		if (winner != 0) {
+			outcome.winner = (winner - 1 + index) % Gomoku.PLAYER_COUNT;
+			if ((recorder != null) && !(outcome.forfeit)) {
+				this.addToBook(recorder, winner, controllers);
+			}
+		}
+		
+		for (int i = 0; i < Gomoku.PLAYER_COUNT; i++) {
+			outcome.latencies[(i + index) % Gomoku.PLAYER_COUNT] = controllers[i].getLatencies();
+			outcome.nodes[(i + index) % Gomoku.PLAYER_COUNT] = controllers[i].getNodeCount();
+		}
+		return (outcome);
+	}
+	
+	/**
+	 * Plays every game of the series, spread over the threads.
+	 * 
+	 * @param progress A stream to report finished games to, or null.
+	 * @return The results of the series.
+	 * @throws InterruptedException If the thread is interrupted while waiting for the games.
+	 */
+	public Results run(PrintStream progress) throws InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(this.threads);
+		try {
+			List<Future<Outcome>> futures = new ArrayList<Future<Outcome>>(this.games);
+			for (int i = 0; i < this.games; i++) {
+				final int index = i;
+				futures.add(executor.submit(new Callable<Outcome>() {
+					@Override
+					public Outcome call() {
+						return (SelfPlay.this.play(index));
+					}
+				}));
+			}
+			
+			Results results = new Results(this.players);
+			for (Future<Outcome> future : futures) {
+				results.add(future.get());
+				if (progress != null) {
+					progress.println(String.format("[SelfPlay] %d/%d games played", results.getGames(), this.games));
+				}
+			}
+			return (results);
+		}
+		catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Plays every game of the series, spread over the threads.
+	 * 
+	 * @return The results of the series.
+	 * @throws InterruptedException If the thread is interrupted while waiting for the games.
+	 */
+	public Results run() throws InterruptedException {
+		return (this.run(null));
+	}
+}
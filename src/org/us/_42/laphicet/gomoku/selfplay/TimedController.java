@@ -0,0 +1,103 @@
+package org.us._42.laphicet.gomoku.selfplay;
+
+import java.util.Arrays;
+
+import org.us._42.laphicet.gomoku.Gomoku;
+import org.us._42.laphicet.gomoku.PlayerController;
+import org.us._42.laphicet.gomoku.ai.AIController;
+
+/**
+ * Wraps a player to measure the wall clock time of every move it makes.
+ * Any player can be timed, whether or not it is an AIController.
+ * The positions searched by an AIController are added up as well.
+ */
+public class TimedController implements PlayerController {
+	private PlayerController player;
+	
+	private long[] latencies = new long[64];
+	private int moves = 0;
+	private long nodes = 0;
+	
+	/**
+	 * Creates a new timed player.
+	 * 
+	 * @param player The player to time.
+	 */
+	public TimedController(PlayerController player) {
+		this.player = player;
+	}
+	
+	/**
+	 * Gets the wrapped player.
+	 * 
+	 * @return The player being timed.
+	 */
+	public PlayerController getPlayer() {
+		return (this.player);
+	}
+	
+	/**
+	 * Gets the number of positions the player searched over every move.
+	 * 
+	 * @return The number of positions, or 0 if the player does not report them.
+	 */
+	public long getNodeCount() {
+		return (this.nodes);
+	}
+	
+	/**
+	 * Gets the time every move took.
+	 * 
+	 * @return The latency of every move in nanoseconds, in the order they were made.
+	 */
+	public long[] getLatencies() {
+		return (Arrays.copyOf(this.latencies, this.moves));
+	}
+	
+	@Override
+	public String name(Gomoku game, int value) {
+		return (this.player.name(game, value));
+	}
+	
+	@Override
+	public void report(Gomoku game, String message) {
+		this.player.report(game, message);
+	}
+	
+	@Override
+	public void informChange(Gomoku game, int x, int y, int value) {
+		this.player.informChange(game, x, y, value);
+	}
+	
+	@Override
+	public void informWinner(Gomoku game, int value) {
+		this.player.informWinner(game, value);
+	}
+	
+	@Override
+	public boolean getMove(Gomoku game, int value, long key) {
+		long start = System.nanoTime();
+		boolean moved = this.player.getMove(game, value, key);
+		long latency = System.nanoTime() - start;
+		
+		if (this.moves == this.latencies.length) {
+			this.latencies = Arrays.copyOf(this.latencies, this.latencies.length * 2);
+		}
+		this.latencies[this.moves++] = latency;
+		
+		if (this.player instanceof AIController) {
+			this.nodes += ((AIController)this.player).getNodeCount();
+		}
+		return (moved);
+	}
+	
+	@Override
+	public void gameStart(Gomoku game, int value) {
+		this.player.gameStart(game, value);
+	}
+	
+	@Override
+	public void gameEnd(Gomoku game) {
+		this.player.gameEnd(game);
+	}
+}
@@ -0,0 +1,275 @@
+package org.us._42.laphicet.gomoku.selfplay;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.us._42.laphicet.gomoku.ai.Weights;
+import org.us._42.laphicet.gomoku.ai.Weights.Weight;
+
+/**
+ * Tunes the weights of an AI by SPSA, simultaneous perturbation stochastic approximation, over self-play.
+ * 
+ * Every iteration moves all of the AI's weights at once, each up or down at random by the same fraction
+ * of its initial magnitude, and plays a series of games between the two perturbed players with {@link SelfPlay}.
+ * The difference of their scores estimates the gradient along the perturbation, and every weight
+ * steps towards the side that scored better. Perturbations and steps shrink over the iterations.
+ * 
+ * Usage: selfplay.Tuner [-iterations n] [-games n] [-threads n] [-turns n] [-quiet] [-weights file] -out file player
+ * 
+ * The weights are written to the output file after every iteration, so a run can be stopped at any time.
+ */
+public class Tuner {
+	private static final String USAGE = "Usage: [-iterations n] [-games n] [-threads n] [-turns n] [-quiet] [-weights file] -out file player\n"
+			+ "    player: tini[:moves,depth,threads] | arta[:amount,depth] | lydeka[:amount,depth]";
+	
+	// The decay of the step and perturbation sizes recommended for SPSA
+	private static final double ALPHA = 0.602;
+	private static final double GAMMA = 0.101;
+	
+	public static final double DEFAULT_PERTURBATION = 0.1;
+	public static final double DEFAULT_STEP = 0.05;
+	
+	private String player;
+	private Weight[] tuned;
+	private Weights weights;
+	
+	private int games;
+	private int threads;
+	private int turnLimit;
+	private double perturbation = DEFAULT_PERTURBATION;
+	private double step = DEFAULT_STEP;
+	private Random random = new Random();
+	
+	/**
+	 * Creates a new tuner.
+	 * 
+	 * @param player The description of the player to tune, see {@link Players#create(String)}, without weights or book.
+	 * @param weights The weights to start from.
+	 * @param games The number of games to play at every iteration.
+	 * @param threads The number of games to play at once.
+	 * @param turnLimit The number of turns after which a game is a draw.
+	 */
+	public Tuner(String player, Weights weights, int games, int threads, int turnLimit) {
+		String owner = player.split(":", 2)[0].trim().toLowerCase();
+		List<Weight> tuned = new ArrayList<Weight>();
+		for (Weight weight : Weight.values()) {
+			if (weight.owner.equals(owner)) {
+				tuned.add(weight);
+			}
+		}
+		if (tuned.isEmpty()) {
+			throw new IllegalArgumentException("Player " + player + " has no weights to tune");
+		}
+		if (games < 2) {
+			throw new IllegalArgumentException("The tuner needs at least two games per iteration!");
+		}
+		
+		this.player = player;
+		this.tuned = tuned.toArray(new Weight[tuned.size()]);
+		this.weights = weights;
+		this.games = games;
+		this.threads = threads;
+		this.turnLimit = turnLimit;
+	}
+	
+	/**
+	 * Changes the size of the perturbations and steps.
+	 * 
+	 * @param perturbation The first perturbation of every weight, as a fraction of its initial magnitude.
+	 * @param step The first step of every weight when one side wins every game, as a fraction of its initial magnitude.
+	 */
+	public void setGains(double perturbation, double step) {
+		this.perturbation = perturbation;
+		this.step = step;
+	}
+	
+	/**
+	 * Gets the weights tuned so far.
+	 * 
+	 * @return The current weights.
+	 */
+	public Weights getWeights() {
+		return (this.weights);
+	}
+	
+	/**
+	 * Gets the magnitude the perturbations and steps of a weight are relative to.
+	 * 
+	 * @param weight The weight.
+	 * @return The magnitude of the weight's initial value, at least 1.
+	 */
+	private static double scale(Weight weight) {
+		return (Math.max(Math.abs(weight.initial), 1.0));
+	}
+	
+	/**
+	 * Runs one iteration: plays the weights perturbed one way against the weights perturbed the other way,
+	 * then steps the weights towards the better side.
+	 * 
+	 * @param iteration The index of the iteration, from 0.
+	 * @param iterations The total number of iterations, which sets how fast the steps shrink.
+	 * @param files Two files to write the perturbed weights to, for the players to read.
+	 * @return The score of the first perturbed player against the second.
+	 * @throws IOException If the perturbed weights cannot be written.
+	 * @throws InterruptedException If the thread is interrupted while waiting for the games.
+	 */
+	public double iterate(int iteration, int iterations, Path[] files) throws IOException, InterruptedException {
+		double stability = iterations / 10.0;
+		double c = this.perturbation / Math.pow(iteration + 1, GAMMA);
+		double a = (this.step * 2.0 * this.perturbation * Math.pow(stability + 1, ALPHA)) / Math.pow(iteration + 1 + stability, ALPHA);
+		
+		int[] signs = new int[this.tuned.length];
+		Weights plus = this.weights;
+		Weights minus = this.weights;
+		for (int i = 0; i < this.tuned.length; i++) {
+			Weight weight = this.tuned[i];
+			signs[i] = this.random.nextBoolean() ? 1 : -1;
+			double delta = c * scale(weight) * signs[i];
+			plus = plus.with(weight, this.weights.get(weight) + delta);
+			minus = minus.with(weight, this.weights.get(weight) - delta);
+		}
+		plus.save(files[0]);
+		minus.save(files[1]);
+		
+		SelfPlay selfPlay = new SelfPlay(this.games, this.threads, this.turnLimit,
+				this.player + "#" + files[0], this.player + "#" + files[1]);
+		Results results = selfPlay.run();
+		double score = results.getScore(0);
+		double difference = score - results.getScore(1);
+		
+		for (int i = 0; i < this.tuned.length; i++) {
+			Weight weight = this.tuned[i];
+			double gradient = difference / (2.0 * c * signs[i]);
+			this.weights = this.weights.with(weight, this.weights.get(weight) + (a * gradient * scale(weight)));
+		}
+		return (score);
+	}
+	
+	/**
+	 * Runs every iteration, writing the weights to a file after each one.
+	 * 
+	 * @param iterations The number of iterations.
+	 * @param out The path to write the weights to.
+	 * @param progress A stream to report finished iterations to, or null.
+	 * @return The tuned weights.
+	 * @throws IOException If the weights cannot be written.
+	 * @throws InterruptedException If the thread is interrupted while waiting for the games.
+	 */
+	public Weights tune(int iterations, Path out, PrintStream progress) throws IOException, InterruptedException {
+		Path[] files = new Path[2];
+		try {
+			for (int i = 0; i < files.length; i++) {
+				files[i] = Files.createTempFile("gomoku", ".weights");
+			}
+			
+			for (int i = 0; i < iterations; i++) {
+				double score = this.iterate(i, iterations, files);
+				this.weights.save(out);
+				if (progress != null) {
+					progress.println(String.format("[Tuner] %d/%d iterations, perturbed score %.3f", i + 1, iterations, score));
+				}
+			}
+		}
+		finally {
+			for (Path file : files) {
+				if (file != null) {
+					Files.deleteIfExists(file);
+				}
+			}
+		}
+		return (this.weights);
+	}
+	
+	public static void main(String... args) throws InterruptedException {
+		int iterations = 100;
+		int games = 16;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int turns = SelfPlay.DEFAULT_TURN_LIMIT;
+		boolean quiet = false;
+		String start = null;
+		String out = null;
+		String player = null;
+		Tuner tuner = null;
+		
+		try {
+			for (int i = 0; i < args.length; i++) {
+				switch (args[i]) {
+					case "-iterations":
+						iterations = Integer.parseInt(args[++i]);
+						break;
+					case "-games":
+						games = Integer.parseInt(args[++i]);
+						break;
+					case "-threads":
+						threads = Integer.parseInt(args[++i]);
+						break;
+					case "-turns":
+						turns = Integer.parseInt(args[++i]);
+						break;
+					case "-quiet":
+						quiet = true;
+						break;
+					case "-weights":
+						start = args[++i];
+						break;
+					case "-out":
+						out = args[++i];
+						break;
+					default:
+						if (player != null) {
+							throw new IllegalArgumentException("Too many players");
+						}
+						player = args[i];
+						break;
+				}
+			}
+			if (player == null) {
+				throw new IllegalArgumentException("No player to tune");
+			}
+			if (out == null) {
+				throw new IllegalArgumentException("No file to write the weights to");
+			}
+			tuner = new Tuner(player, (start != null) ? Weights.load(Paths.get(start)) : new Weights(), games, threads, turns);
+		}
+		catch (IOException | RuntimeException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(1);
+		}
+		
+		PrintStream stdout = System.out;
+		PrintStream err = System.err;
+		
+		// The AIs print their reasoning, keep it out of the progress
+		if (quiet) {
+			PrintStream sink = new PrintStream(new OutputStream() {
+				@Override
+				public void write(int b) { }
+			});
+			System.setOut(sink);
+			System.setErr(sink);
+		}
+		
+		long begin = System.nanoTime();
+		try {
+			tuner.tune(iterations, Paths.get(out), err);
+		}
+		catch (IOException e) {
+			err.println("Cannot write weights " + out + ": " + e.getMessage());
+			System.exit(1);
+		}
+		double elapsed = (double)(System.nanoTime() - begin) / 1000000000.0;
+		
+		System.setOut(stdout);
+		System.setErr(err);
+		stdout.print(tuner.getWeights());
+		stdout.println(String.format("Tuned over %d games in %.1f seconds on %d threads", iterations * games, elapsed, threads));
+	}
+}
@@ -586,6 +586,19 @@ public class Visualizer implements PlayerController, GameStateReporter {
 			if (player instanceof AIController) {
 //				this.botTime = ((AIController)player).getTimeElapsed();
 				this.addStringToConsole("Time Taken to move for Player " + player.name(game, value) + ": " + ((AIController)player).getTimeElapsed(), 1.0f, 0.0f, 1.0f);
+				if (((AIController)player).getDepthReached() > 0) {
+					AIController ai = (AIController)player;
+					double rate = (ai.getTimeElapsed() > 0.0) ? (ai.getNodeCount() / ai.getTimeElapsed()) : 0.0;
+					this.addStringToConsole(String.format("Searched %d turns deep over %d positions (%.0f per second)", ai.getDepthReached(), ai.getNodeCount(), rate), 1.0f, 0.0f, 1.0f);
+				}
+				int[] variation = ((AIController)player).getPrincipalVariation();
+				if (variation.length > 0) {
+					StringBuilder line = new StringBuilder("Expected line:");
+					for (int cell : variation) {
+						line.append(String.format(" (%d, %d)", cell % Gomoku.BOARD_LENGTH, cell / Gomoku.BOARD_LENGTH));
+					}
+					this.addStringToConsole(line.toString(), 1.0f, 0.0f, 1.0f);
+				}
 			}
 //			else {
 //				this.botTime = -1;